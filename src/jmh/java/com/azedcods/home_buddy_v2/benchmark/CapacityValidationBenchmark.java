@@ -0,0 +1,98 @@
+package com.azedcods.home_buddy_v2.benchmark;
+
+import com.azedcods.home_buddy_v2.model.dose.CompiledScheduleCache;
+import com.azedcods.home_buddy_v2.model.dose.DefaultScheduleEngine;
+import com.azedcods.home_buddy_v2.model.dose.Dose;
+import com.azedcods.home_buddy_v2.model.dose.ScheduleEngine;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceCapacityPlanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user capacity validation, as done by on-demand generation:
+ * seed the planner with existing occurrences, then offer every dose's instants in time order
+ * (the engine's k-way merge).
+ *
+ * Dose counts include mixes that overflow the 7/day limit, so the violation path and
+ * report building are measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CapacityValidationBenchmark {
+
+    @Param({"8", "30", "90"})
+    int windowDays;
+
+    @Param({"2", "5", "10"})
+    int doseCount;
+
+    @Param({"0", "3"})
+    int existingPerDay;
+
+    private DefaultScheduleEngine engine;
+    private List<Dose> doses;
+    private List<LocalDateTime> existing;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    // Pre-planned once, used by the report benchmark
+    private OccurrenceCapacityPlanner overflowing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate start = LocalDate.of(2026, 1, 5);
+        from = start.atStartOfDay();
+        to = start.plusDays(windowDays).atStartOfDay().minusNanos(1);
+
+        doses = DoseMix.generate(doseCount, start, windowDays, 7L);
+        engine = new DefaultScheduleEngine(new CompiledScheduleCache());
+
+        existing = new ArrayList<>();
+        for (int day = 0; day < windowDays; day++) {
+            for (int i = 0; i < existingPerDay; i++) {
+                existing.add(start.plusDays(day).atTime(6 + i, 30));
+            }
+        }
+
+        // Force violations regardless of the mix: every slot of the window is already taken
+        overflowing = new OccurrenceCapacityPlanner();
+        for (int day = 0; day < windowDays; day++) {
+            for (int i = 0; i < OccurrenceCapacityPlanner.MAX_OCCURRENCES_PER_DAY; i++) {
+                overflowing.countExisting(start.plusDays(day).atTime(8, 0));
+            }
+        }
+        plan(overflowing);
+    }
+
+    @Benchmark
+    public OccurrenceCapacityPlanner planWindow() {
+        return plan(new OccurrenceCapacityPlanner());
+    }
+
+    @Benchmark
+    public String buildViolationReport() {
+        return overflowing.buildViolationReport();
+    }
+
+    private OccurrenceCapacityPlanner plan(OccurrenceCapacityPlanner planner) {
+        for (LocalDateTime at : existing) {
+            planner.countExisting(at);
+        }
+        Iterator<ScheduleEngine.ScheduledDose> merged = engine.streamMerged(doses, from, to).iterator();
+        while (merged.hasNext()) {
+            ScheduleEngine.ScheduledDose next = merged.next();
+            planner.tryAccept(next.dose().getId(), next.at());
+        }
+        return planner;
+    }
+}
@@ -0,0 +1,59 @@
+package com.azedcods.home_buddy_v2.benchmark;
+
+import com.azedcods.home_buddy_v2.model.dose.Dose;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Deterministic, realistic dose fixtures for the benchmarks.
+ *
+ * - Frequencies 1–24 per day, weighted towards 1–4
+ * - ~40% explicit times, the rest use the engine's default times
+ * - ~30% weekday-filtered, ~30% starting / ~20% ending inside the window (exercises clamping)
+ */
+final class DoseMix {
+
+    private static final int[] FREQUENCIES = {1, 1, 1, 2, 2, 2, 3, 3, 4, 4, 6, 8, 12, 24};
+
+    private DoseMix() {
+    }
+
+    static List<Dose> generate(int count, LocalDate windowStart, int windowDays, long seed) {
+        Random rnd = new Random(seed);
+        List<Dose> out = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int freq = FREQUENCIES[rnd.nextInt(FREQUENCIES.length)];
+
+            // Empty sets mean "default times" / "every day", as on a new Dose
+            Set<LocalTime> times = new LinkedHashSet<>();
+            if (rnd.nextInt(10) < 4) {
+                while (times.size() < freq) {
+                    times.add(LocalTime.of(rnd.nextInt(24), rnd.nextInt(4) * 15));
+                }
+            }
+
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            if (rnd.nextInt(10) < 3) {
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    if (rnd.nextBoolean()) days.add(day);
+                }
+            }
+
+            LocalDate startDate = null;
+            LocalDate endDate = null;
+            if (rnd.nextInt(10) < 3) startDate = windowStart.plusDays(rnd.nextInt(Math.max(1, windowDays / 2)));
+            if (rnd.nextInt(10) < 2) endDate = windowStart.plusDays(windowDays / 2 + rnd.nextInt(Math.max(1, windowDays / 2)));
+
+            // Schedule fields only: medication, user and quantity play no part in expansion
+            Dose d = new Dose(freq, days, times, null, null, startDate, endDate, null, null, null);
+            d.setId((long) i + 1);
+
+            out.add(d);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,69 @@
+package com.azedcods.home_buddy_v2.benchmark;
+
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.model.dose.CompiledScheduleCache;
+import com.azedcods.home_buddy_v2.model.dose.DefaultScheduleEngine;
+import com.azedcods.home_buddy_v2.model.dose.Dose;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule expansion over a dose mix.
+ *
+ * - computeSchedule: the engine path (compiled cache warm)
+ * - compileAndExpand: cold path, rules compiled on every call
+ * - streamMerged: every dose of a user as one ordered stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleExpansionBenchmark {
+
+    @Param({"8", "30", "90"})
+    int windowDays;
+
+    @Param({"1", "10", "50"})
+    int doseCount;
+
+    private DefaultScheduleEngine engine;
+    private List<Dose> doses;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate start = LocalDate.of(2026, 1, 5);
+        from = start.atStartOfDay();
+        to = start.plusDays(windowDays).atStartOfDay().minusNanos(1);
+
+        doses = DoseMix.generate(doseCount, start, windowDays, 42L);
+        engine = new DefaultScheduleEngine(new CompiledScheduleCache());
+    }
+
+    @Benchmark
+    public void computeSchedule(Blackhole bh) {
+        for (Dose d : doses) {
+            bh.consume(engine.computeSchedule(d, from, to));
+        }
+    }
+
+    @Benchmark
+    public void compileAndExpand(Blackhole bh) {
+        for (Dose d : doses) {
+            bh.consume(CompiledSchedule.compile(d).expand(from, to));
+        }
+    }
+
+    @Benchmark
+    public long streamMerged() {
+        return engine.streamMerged(doses, from, to).count();
+    }
+}
@@ -1,10 +1,12 @@
 package com.azedcods.home_buddy_v2.config;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@EnableConfigurationProperties({NotificationRetentionProperties.class, NotificationCoalescingProperties.class})
 public class AppConfig {
 
     @Bean
@@ -0,0 +1,30 @@
+package com.azedcods.home_buddy_v2.config;
+
+import com.azedcods.home_buddy_v2.enums.NotificationRule;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Burst coalescing per rule: emits of a listed rule wait in the outbox for the rule's window, then all
+ * pending emits of the same (user, rule) are delivered as one digest notification (latest content +
+ * occurrence count). Rules not listed are delivered as they come. Emits dropped by their cooldown
+ * are not counted.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "homebuddy.notifications.coalesce")
+public class NotificationCoalescingProperties {
+
+    private Map<NotificationRule, Duration> windows = new EnumMap<>(NotificationRule.class);
+
+    /** Window of {@code rule}, or {@code null} when it is not coalesced. */
+    public Duration windowOf(NotificationRule rule) {
+        Duration w = (rule == null) ? null : windows.get(rule);
+        return (w == null || w.isZero() || w.isNegative()) ? null : w;
+    }
+}
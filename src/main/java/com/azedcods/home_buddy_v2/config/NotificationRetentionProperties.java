@@ -0,0 +1,33 @@
+package com.azedcods.home_buddy_v2.config;
+
+import com.azedcods.home_buddy_v2.enums.NotificationRule;
+import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Notification retention applied by the background sweeper.
+ * A notification is removed when it is older than its max age (rule entry, else severity entry, else default)
+ * or when it falls past the newest {@code maxPerUser} of its recipient.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "homebuddy.notifications.retention")
+public class NotificationRetentionProperties {
+
+    private int maxPerUser = 500;
+
+    private Duration defaultMaxAge = Duration.ofDays(90);
+
+    private Map<NotificationSeverity, Duration> maxAgeBySeverity = new EnumMap<>(NotificationSeverity.class);
+
+    private Map<NotificationRule, Duration> maxAgeByRule = new EnumMap<>(NotificationRule.class);
+
+    // Users handled per DELETE statement
+    private int userBatchSize = 200;
+}
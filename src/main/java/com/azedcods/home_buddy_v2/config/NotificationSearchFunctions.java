@@ -0,0 +1,42 @@
+package com.azedcods.home_buddy_v2.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL full-text functions usable from Criteria / Specifications (registered through
+ * META-INF/services). Both render the exact expression of the idx_notification_fts GIN index
+ * (see FullTextNotificationSearch): any other spelling of the vector would not use it.
+ *
+ * - notification_fts_match(title, message, tsquery) → boolean
+ * - notification_fts_rank(title, message, tsquery)  → double
+ */
+public class NotificationSearchFunctions implements FunctionContributor {
+
+    public static final String MATCH = "notification_fts_match";
+    public static final String RANK = "notification_fts_rank";
+
+    /** Title weighs more than message. Keep in sync with the index definition. */
+    public static final String VECTOR_SQL =
+            "(setweight(to_tsvector('simple', coalesce(%1$s, '')), 'A')"
+                    + " || setweight(to_tsvector('simple', coalesce(%2$s, '')), 'B'))";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        BasicTypeRegistry types = contributions.getTypeConfiguration().getBasicTypeRegistry();
+        String vector = VECTOR_SQL.formatted("?1", "?2");
+
+        contributions.getFunctionRegistry().registerPattern(
+                MATCH,
+                "(" + vector + " @@ to_tsquery('simple', ?3))",
+                types.resolve(StandardBasicTypes.BOOLEAN)
+        );
+        contributions.getFunctionRegistry().registerPattern(
+                RANK,
+                "ts_rank(" + vector + ", to_tsquery('simple', ?3))",
+                types.resolve(StandardBasicTypes.DOUBLE)
+        );
+    }
+}
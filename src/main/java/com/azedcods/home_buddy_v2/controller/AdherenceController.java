@@ -0,0 +1,60 @@
+package com.azedcods.home_buddy_v2.controller;
+
+import com.azedcods.home_buddy_v2.enums.AdherenceGranularity;
+import com.azedcods.home_buddy_v2.enums.AdherenceGroupBy;
+import com.azedcods.home_buddy_v2.payload.AdherenceDtos;
+import com.azedcods.home_buddy_v2.security.services.UserDetailsImpl;
+import com.azedcods.home_buddy_v2.service.dose.AdherenceService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO;
+
+@RestController
+@RequestMapping("/api/adherence")
+public class AdherenceController {
+
+    private final AdherenceService service;
+
+    public AdherenceController(AdherenceService service) {
+        this.service = service;
+    }
+
+    /** Adherence report from the daily rollups (no occurrence scan). */
+    @GetMapping
+    public AdherenceDtos.Report report(
+            Authentication auth,
+            @RequestParam(required = false) Long userId,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+            @RequestParam(required = false) AdherenceGranularity granularity,
+            @RequestParam(required = false) AdherenceGroupBy groupBy
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
+        return service.report(effectiveUserId, from, to, granularity, groupBy);
+    }
+
+    private Long resolveUserIdOrThrow(Authentication auth, Long requestedUserId) {
+        if (auth == null || !(auth.getPrincipal() instanceof UserDetailsImpl principal)) {
+            throw new org.springframework.security.access.AccessDeniedException("Unauthorized");
+        }
+
+        boolean isUser = principal.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_USER"));
+
+        boolean isCaregiverOrAdmin = principal.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_CAREGIVER") || a.getAuthority().equals("ROLE_ADMIN"));
+
+        if (isCaregiverOrAdmin) {
+            if (requestedUserId == null) throw new IllegalArgumentException("userId is required");
+            return requestedUserId;
+        }
+
+        if (isUser) return principal.getId();
+
+        throw new org.springframework.security.access.AccessDeniedException("Forbidden");
+    }
+}
@@ -6,15 +6,22 @@ import com.azedcods.home_buddy_v2.security.services.UserDetailsImpl;
 import com.azedcods.home_buddy_v2.service.dose.DoseService;
 import com.azedcods.home_buddy_v2.service.dose.DoseOccurrenceService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import static org.springframework.format.annotation.DateTimeFormat.ISO;
+
 @RestController
 @RequestMapping("/api/doses")
 public class DoseController {
 
+    private static final int DEFAULT_PREVIEW_DAYS = 30;
+    private static final int MAX_PREVIEW_DAYS = 366;
+
     private final DoseService service;
     private final DoseOccurrenceService occurrenceService;
 
@@ -54,6 +61,45 @@ public class DoseController {
         return toDto(created);
     }
 
+    /** Dry-run: per-day load if this dose were created. Nothing is persisted. */
+    @PostMapping("/preview")
+    public DoseDtos.PreviewResponse previewCreate(
+            Authentication auth,
+            @Valid @RequestBody DoseDtos.CreateRequest req,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam(required = false) Integer days
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, req.userId());
+
+        DoseDtos.CreateRequest safeReq = new DoseDtos.CreateRequest(
+                effectiveUserId,
+                req.localMedicationId(),
+                req.timeFrequency(),
+                req.daysOfWeek(),
+                req.times(),
+                req.quantityAmount(),
+                req.quantityUnit(),
+                req.startDate(),
+                req.endDate(),
+                req.instructions()
+        );
+
+        LocalDate start = (from == null) ? LocalDate.now() : from;
+        return service.previewCreate(safeReq, start, start.plusDays(previewDays(days) - 1));
+    }
+
+    /** Dry-run: per-day load if this dose were updated as requested. Nothing is persisted. */
+    @PostMapping("/{id}/preview")
+    public DoseDtos.PreviewResponse previewUpdate(
+            @PathVariable Long id,
+            @Valid @RequestBody DoseDtos.UpdateRequest req,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam(required = false) Integer days
+    ) {
+        LocalDate start = (from == null) ? LocalDate.now() : from;
+        return service.previewUpdate(id, req, start, start.plusDays(previewDays(days) - 1));
+    }
+
     @GetMapping
     public List<DoseDtos.Response> list(Authentication auth, @RequestParam(required = false) Long userId) {
         Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
@@ -75,6 +121,14 @@ public class DoseController {
         service.delete(id);
     }
 
+    private int previewDays(Integer days) {
+        if (days == null) return DEFAULT_PREVIEW_DAYS;
+        if (days < 1 || days > MAX_PREVIEW_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_PREVIEW_DAYS);
+        }
+        return days;
+    }
+
     private DoseDtos.Response toDto(Dose d) {
         return new DoseDtos.Response(
                 d.getId(),
@@ -1,14 +1,28 @@
 package com.azedcods.home_buddy_v2.controller;
 
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
 import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
 import com.azedcods.home_buddy_v2.payload.DoseOccurrenceDtos;
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceHistoryRow;
 import com.azedcods.home_buddy_v2.security.services.UserDetailsImpl;
 import com.azedcods.home_buddy_v2.service.dose.DoseOccurrenceService;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceCursor;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceExportService;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -19,27 +33,98 @@ import static org.springframework.format.annotation.DateTimeFormat.ISO;
 public class DoseOccurrenceController {
 
     private final DoseOccurrenceService service;
+    private final OccurrenceExportService exportService;
 
-    public DoseOccurrenceController(DoseOccurrenceService service) {
+    public DoseOccurrenceController(DoseOccurrenceService service, OccurrenceExportService exportService) {
         this.service = service;
+        this.exportService = exportService;
     }
 
+    /**
+     * Window of occurrences, with ETag / If-None-Match.
+     * Without cursor / limit the whole window comes back in one response (nextCursor null); with either,
+     * it is keyset-paginated (follow nextCursor) in pages of 100 by default, 500 at most.
+     * The ETag comes from the per-user occurrence version and the request parameters: an unchanged
+     * window answers 304 without reading dose_occurrence.
+     */
     @GetMapping
-    public DoseOccurrenceDtos.WindowResponse listWindow(
+    public ResponseEntity<DoseOccurrenceDtos.WindowPageResponse> listWindow(
             Authentication auth,
+            WebRequest webRequest,
             @RequestParam(required = false) Long userId,
             @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
-            @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to
+            @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
         Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
 
-        List<DoseOccurrenceDtos.Response> items = service.listWindowForUser(effectiveUserId, from, to).stream()
+        // Each (from, to, cursor, limit) is its own representation of the same version
+        String query = from + "|" + to + "|" + cursor + "|" + limit;
+        String etag = "occ-" + effectiveUserId + "-v" + service.windowVersion(effectiveUserId)
+                + "-" + DigestUtils.md5DigestAsHex(query.getBytes(StandardCharsets.UTF_8));
+        if (webRequest.checkNotModified(etag)) return null; // 304 already set
+
+        DoseOccurrenceService.WindowPage page = (cursor == null && limit == null)
+                ? new DoseOccurrenceService.WindowPage(service.listWindowForUser(effectiveUserId, from, to), null)
+                : service.listWindowPageForUser(effectiveUserId, from, to, cursor, limit);
+
+        List<DoseOccurrenceDtos.Response> items = page.items().stream()
                 .map(this::toDto)
                 .toList();
 
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new DoseOccurrenceDtos.WindowPageResponse(from, to, items, page.nextCursor()));
+    }
+
+    // Includes archived history
+    @GetMapping("/history")
+    public DoseOccurrenceDtos.WindowResponse history(
+            Authentication auth,
+            @RequestParam(required = false) Long userId,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
+        Instant now = Instant.now();
+
+        List<DoseOccurrenceDtos.Response> items = service.historyForUser(effectiveUserId, from, to).stream()
+                .map(r -> toDto(r, now))
+                .toList();
+
         return new DoseOccurrenceDtos.WindowResponse(from, to, items);
     }
 
+    /**
+     * Full history (hot + archive) streamed as NDJSON or CSV, in constant memory.
+     * Every row carries a cursor: pass the last one received as {@code after} to resume.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            Authentication auth,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String after
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
+        OccurrenceExportService.ExportFormat exportFormat = OccurrenceExportService.ExportFormat.parse(format);
+        if (after != null && !after.isBlank()) OccurrenceCursor.decode(after); // 400 before the stream starts
+
+        StreamingResponseBody body = out ->
+                exportService.export(effectiveUserId, from, to, exportFormat, after, out);
+
+        String filename = "occurrences-" + effectiveUserId + "." + exportFormat.extension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .cacheControl(CacheControl.noStore())
+                .body(body);
+    }
+
     @PostMapping("/generate")
     public DoseOccurrenceDtos.WindowResponse generate(
             Authentication auth,
@@ -55,6 +140,29 @@ public class DoseOccurrenceController {
         return new DoseOccurrenceDtos.WindowResponse(req.from(), req.to(), items);
     }
 
+    // Caregiver reconciliation: many TAKEN / MISSED transitions, one transaction, per-item results
+    @PostMapping("/status/bulk")
+    public DoseOccurrenceDtos.BulkStatusResponse setStatusBulk(
+            Authentication auth,
+            @RequestParam(required = false) Long userId,
+            @Valid @RequestBody DoseOccurrenceDtos.BulkStatusRequest req
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
+
+        List<DoseOccurrenceDtos.BulkStatusItemResult> results = service.applyStatuses(effectiveUserId, req.items()).stream()
+                .map(r -> new DoseOccurrenceDtos.BulkStatusItemResult(
+                        r.occurrenceId(),
+                        r.applied(),
+                        r.applied() ? toDto(r.occurrence()) : null,
+                        r.error(),
+                        r.warning()
+                ))
+                .toList();
+
+        int applied = (int) results.stream().filter(DoseOccurrenceDtos.BulkStatusItemResult::applied).count();
+        return new DoseOccurrenceDtos.BulkStatusResponse(applied, results.size() - applied, results);
+    }
+
     @PostMapping("/{id}/taken")
     public DoseOccurrenceDtos.Response markTaken(
             @PathVariable Long id,
@@ -74,16 +182,30 @@ public class DoseOccurrenceController {
     }
 
     private DoseOccurrenceDtos.Response toDto(DoseOccurrence o) {
+        // Status is derived from the clock at mapping time (reads never write)
         return new DoseOccurrenceDtos.Response(
                 o.getId(),
                 o.getDose().getId(),
                 o.getScheduledAt(),
-                o.getStatus(),
+                o.effectiveStatus(Instant.now()),
                 o.getTakenAt(),
                 o.getNote()
         );
     }
 
+    private DoseOccurrenceDtos.Response toDto(OccurrenceHistoryRow r, Instant now) {
+        OccurrenceStatus persisted = OccurrenceStatus.valueOf(r.getStatus());
+        return new DoseOccurrenceDtos.Response(
+                r.getId(),
+                r.getDoseId(),
+                r.getScheduledAt(),
+                DoseOccurrence.deriveStatus(
+                        persisted, DoseOccurrence.dueAt(r.getScheduledInstant(), r.getScheduledAt()), r.getTakenAt(), now),
+                r.getTakenAt(),
+                r.getNote()
+        );
+    }
+
     private Long resolveUserIdOrThrow(Authentication auth, Long requestedUserId) {
         if (auth == null || !(auth.getPrincipal() instanceof UserDetailsImpl principal)) {
             throw new org.springframework.security.access.AccessDeniedException("Unauthorized");
@@ -3,11 +3,16 @@ package com.azedcods.home_buddy_v2.controller;
 
 import com.azedcods.home_buddy_v2.enums.NotificationType;
 import com.azedcods.home_buddy_v2.payload.NotificationDtos;
+import com.azedcods.home_buddy_v2.security.services.UserDetailsImpl;
 import com.azedcods.home_buddy_v2.service.notification.NotificationService;
+import com.azedcods.home_buddy_v2.service.notification.NotificationStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 
@@ -17,6 +22,7 @@ import java.time.Instant;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationStreamService streamService;
 
     // Admin: userId omitted => ALL users
     // Non-admin: you should still pass userId (RBAC can enforce).
@@ -34,12 +40,52 @@ public class NotificationController {
         return notificationService.list(userId, unreadOnly, type, from, to, q, page, size);
     }
 
+    // Keyset variant of list: opaque cursor + hasMore instead of page numbers and totals
+    // Admin: userId omitted => ALL users
+    @GetMapping("/scroll")
+    public NotificationDtos.CursorPage scroll(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Boolean unreadOnly,
+            @RequestParam(required = false) NotificationType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return notificationService.listByCursor(userId, unreadOnly, type, from, to, q, cursor, limit);
+    }
+
     // Admin: userId omitted => unread count across ALL users
     @GetMapping("/unread-count")
     public NotificationDtos.UnreadCountResponse unreadCount(@RequestParam(required = false) Long userId) {
         return notificationService.unreadCount(userId);
     }
 
+    /**
+     * Live notifications + unread count moves (Server-Sent Events).
+     * Reconnects resume after the Last-Event-ID header (or ?lastEventId= for clients that cannot set it).
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            Authentication auth,
+            @RequestParam(required = false) Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) Long lastEventId
+    ) {
+        Long effectiveUserId = resolveUserIdOrThrow(auth, userId);
+
+        Long resumeAfter = lastEventId;
+        if (lastEventIdHeader != null && !lastEventIdHeader.isBlank()) {
+            try {
+                resumeAfter = Long.parseLong(lastEventIdHeader.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Last-Event-ID");
+            }
+        }
+        return streamService.subscribe(effectiveUserId, resumeAfter);
+    }
+
     @PostMapping
     public NotificationDtos.Response create(@RequestBody NotificationDtos.CreateRequest req) {
         return notificationService.create(req);
@@ -59,4 +105,25 @@ public class NotificationController {
     public void delete(@PathVariable Long id) {
         notificationService.delete(id);
     }
+
+    private Long resolveUserIdOrThrow(Authentication auth, Long requestedUserId) {
+        if (auth == null || !(auth.getPrincipal() instanceof UserDetailsImpl principal)) {
+            throw new org.springframework.security.access.AccessDeniedException("Unauthorized");
+        }
+
+        boolean isUser = principal.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_USER"));
+
+        boolean isCaregiverOrAdmin = principal.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_CAREGIVER") || a.getAuthority().equals("ROLE_ADMIN"));
+
+        if (isCaregiverOrAdmin) {
+            if (requestedUserId == null) throw new IllegalArgumentException("userId is required");
+            return requestedUserId;
+        }
+
+        if (isUser) return principal.getId();
+
+        throw new org.springframework.security.access.AccessDeniedException("Forbidden");
+    }
 }
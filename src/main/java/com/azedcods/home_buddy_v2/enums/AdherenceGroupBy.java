@@ -0,0 +1,7 @@
+package com.azedcods.home_buddy_v2.enums;
+
+public enum AdherenceGroupBy {
+    USER,
+    DOSE,
+    MEDICATION
+}
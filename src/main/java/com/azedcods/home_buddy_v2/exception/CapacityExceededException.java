@@ -0,0 +1,14 @@
+package com.azedcods.home_buddy_v2.exception;
+
+/**
+ * A user's occurrences would exceed the dispenser's per-day capacity.
+ * The message is the human-readable capacity report.
+ */
+public class CapacityExceededException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
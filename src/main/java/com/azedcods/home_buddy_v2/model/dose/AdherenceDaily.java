@@ -0,0 +1,69 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily adherence rollup of one dose: terminal outcomes of the occurrences scheduled that day
+ * (user's wall-time day).
+ *
+ * Incremented when an occurrence becomes TAKEN or MISSED, so adherence reports read
+ * O(days) rollup rows instead of the occurrence history. Late-take latency is kept as a
+ * fixed-bucket histogram (see AdherenceService#LATENCY_BUCKET_BOUNDS) plus a sum for the mean.
+ *
+ * No FK to dose: rollups outlive the dose, like the archive.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Table(
+        name = "adherence_daily",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_adherence_daily_user_dose_day",
+                columnNames = {"user_id", "dose_id", "day"}
+        ),
+        indexes = @Index(name = "idx_adherence_daily_user_day", columnList = "user_id, day")
+)
+public class AdherenceDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "dose_id", nullable = false)
+    private Long doseId;
+
+    @Column(name = "medication_id")
+    private Long medicationId;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "taken_count", nullable = false)
+    private int takenCount;
+
+    @Column(name = "missed_count", nullable = false)
+    private int missedCount;
+
+    /** Sum of (takenAt - scheduledAt) in minutes over the taken occurrences (early takes count as 0) */
+    @Column(name = "latency_minutes_sum", nullable = false)
+    private long latencyMinutesSum;
+
+    /** Taken occurrences per latency bucket */
+    @Column(name = "latency_buckets", nullable = false)
+    private int[] latencyBuckets;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,211 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Immutable, pre-resolved form of a dose's schedule rules (one per dose version).
+ *
+ * - Weekdays as a 7-bit mask (bit 0 = MONDAY … bit 6 = SUNDAY)
+ * - Times of day as a sorted, distinct int[] of second-of-day offsets
+ *
+ * Expansion is a tight loop over days and offsets; nothing is re-derived per call.
+ */
+public final class CompiledSchedule {
+
+    private static final int EVERY_DAY = 0x7F;
+
+    // High frequencies are spread between 06:00 and 22:00 (avoids scheduling at 03:00 etc.)
+    private static final int SPREAD_START_HOUR = 6;
+    private static final int SPREAD_END_HOUR = 22;
+
+    private final Long doseId;
+    private final long version;
+    private final int weekdayMask;
+    private final int[] secondsOfDay;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    private CompiledSchedule(Long doseId, long version, int weekdayMask, int[] secondsOfDay, LocalDate startDate, LocalDate endDate) {
+        this.doseId = doseId;
+        this.version = version;
+        this.weekdayMask = weekdayMask;
+        this.secondsOfDay = secondsOfDay;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public static CompiledSchedule compile(Dose dose) {
+        return of(
+                dose.getId(),
+                dose.getScheduleVersion(),
+                dose.getTimeFrequency(),
+                dose.getDaysOfWeek(),
+                dose.getTimes(),
+                dose.getStartDate(),
+                dose.getEndDate()
+        );
+    }
+
+    public static CompiledSchedule of(
+            Long doseId,
+            long version,
+            Integer timeFrequency,
+            Set<DayOfWeek> days,
+            Set<LocalTime> times,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+        int mask = 0;
+        if (days != null) {
+            for (DayOfWeek d : days) {
+                if (d != null) mask |= bit(d);
+            }
+        }
+        // Empty set means "every day"
+        if (mask == 0) mask = EVERY_DAY;
+
+        return new CompiledSchedule(doseId, version, mask, resolveSeconds(times, timeFrequency), startDate, endDate);
+    }
+
+    public Long getDoseId() {
+        return doseId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getWeekdayMask() {
+        return weekdayMask;
+    }
+
+    /** Occurrences on an active day. */
+    public int timesPerDay() {
+        return secondsOfDay.length;
+    }
+
+    public boolean activeOn(DayOfWeek day) {
+        return (weekdayMask & bit(day)) != 0;
+    }
+
+    /** Ascending datetimes in [from, to], clamped by the dose start/end dates. */
+    public Iterator<LocalDateTime> iterate(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || to.isBefore(from)) return Collections.emptyIterator();
+
+        LocalDateTime windowFrom = from;
+        LocalDateTime windowTo = to;
+
+        if (startDate != null && windowFrom.isBefore(startDate.atStartOfDay())) {
+            windowFrom = startDate.atStartOfDay();
+        }
+        if (endDate != null && windowTo.isAfter(endDate.atTime(LocalTime.MAX))) {
+            windowTo = endDate.atTime(LocalTime.MAX);
+        }
+        if (windowTo.isBefore(windowFrom)) return Collections.emptyIterator();
+
+        return new DayByDayIterator(windowFrom, windowTo);
+    }
+
+    public List<LocalDateTime> expand(LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> out = new ArrayList<>();
+        iterate(from, to).forEachRemaining(out::add);
+        return out;
+    }
+
+    private static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    private static int[] resolveSeconds(Set<LocalTime> times, Integer freqPerDay) {
+        // Use explicit times if provided
+        if (times != null && !times.isEmpty()) {
+            return times.stream()
+                    .filter(Objects::nonNull)
+                    .mapToInt(LocalTime::toSecondOfDay)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+        }
+
+        int f = (freqPerDay == null || freqPerDay < 1) ? 1 : Math.min(freqPerDay, 24);
+
+        // Human-friendly defaults for common frequencies
+        int[] hours = switch (f) {
+            case 1 -> new int[]{9};
+            case 2 -> new int[]{9, 21};
+            case 3 -> new int[]{8, 14, 20};
+            case 4 -> new int[]{8, 12, 16, 20};
+            case 5 -> new int[]{7, 11, 15, 19, 22};
+            case 6 -> new int[]{6, 10, 14, 18, 21, 23};
+            default -> spreadHours(f);
+        };
+
+        return Arrays.stream(hours).map(h -> h * 3600).distinct().sorted().toArray();
+    }
+
+    private static int[] spreadHours(int f) {
+        int[] out = new int[f];
+        double step = (SPREAD_END_HOUR - SPREAD_START_HOUR) / (double) (f - 1);
+
+        for (int i = 0; i < f; i++) {
+            int hour = (int) Math.round(SPREAD_START_HOUR + i * step);
+            out[i] = Math.max(0, Math.min(23, hour));
+        }
+        return out;
+    }
+
+    /**
+     * Walks the window one day at a time, one offset at a time.
+     * Days ascend and offsets are sorted, so output is ordered without buffering.
+     */
+    private final class DayByDayIterator implements Iterator<LocalDateTime> {
+
+        private final LocalDateTime windowFrom;
+        private final LocalDateTime windowTo;
+        private final LocalDate end;
+
+        private LocalDate day;
+        private boolean dayActive;
+        private int index;
+        private LocalDateTime next;
+
+        DayByDayIterator(LocalDateTime windowFrom, LocalDateTime windowTo) {
+            this.windowFrom = windowFrom;
+            this.windowTo = windowTo;
+            this.end = windowTo.toLocalDate();
+            this.day = windowFrom.toLocalDate();
+            this.dayActive = activeOn(day.getDayOfWeek());
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LocalDateTime next() {
+            if (next == null) throw new NoSuchElementException();
+            LocalDateTime out = next;
+            next = advance();
+            return out;
+        }
+
+        private LocalDateTime advance() {
+            while (!day.isAfter(end)) {
+                if (dayActive) {
+                    while (index < secondsOfDay.length) {
+                        LocalDateTime dt = LocalDateTime.of(day, LocalTime.ofSecondOfDay(secondsOfDay[index++]));
+                        if (dt.isAfter(windowTo)) return null; // last day, past the window: done
+                        if (!dt.isBefore(windowFrom)) return dt;
+                    }
+                }
+                day = day.plusDays(1);
+                dayActive = activeOn(day.getDayOfWeek());
+                index = 0;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU of {@link CompiledSchedule}s keyed by (dose id, schedule version).
+ *
+ * A rule change bumps {@link Dose#getScheduleVersion()}, so stale entries are simply never hit again
+ * and age out. Transient doses (no id yet) are compiled on the fly and never cached.
+ */
+@Component
+public class CompiledScheduleCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Map<Key, CompiledSchedule> entries;
+
+    public CompiledScheduleCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CompiledScheduleCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompiledSchedule> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public CompiledSchedule get(Dose dose) {
+        if (dose.getId() == null) return CompiledSchedule.compile(dose);
+        return get(dose.getId(), dose.getScheduleVersion(), () -> dose);
+    }
+
+    /**
+     * Look up by key only; {@code loader} (which may hit the DB for the element collections)
+     * runs on a miss.
+     */
+    public CompiledSchedule get(Long doseId, long version, Supplier<Dose> loader) {
+        Key key = new Key(doseId, version);
+
+        synchronized (entries) {
+            CompiledSchedule hit = entries.get(key);
+            if (hit != null) return hit;
+        }
+
+        CompiledSchedule compiled = CompiledSchedule.compile(loader.get());
+
+        synchronized (entries) {
+            entries.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /** Non-loading lookup: null on a miss. */
+    public CompiledSchedule peek(Long doseId, long version) {
+        synchronized (entries) {
+            return entries.get(new Key(doseId, version));
+        }
+    }
+
+    public void put(CompiledSchedule compiled) {
+        if (compiled.getDoseId() == null) return;
+        synchronized (entries) {
+            entries.put(new Key(compiled.getDoseId(), compiled.getVersion()), compiled);
+        }
+    }
+
+    private record Key(Long doseId, long version) {}
+}
@@ -6,6 +6,7 @@ import com.azedcods.home_buddy_v2.model.medication.Medication;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
@@ -40,7 +41,8 @@ public class Dose {
      * Example: MON…SUN for daily, or only MON/WED/FRI, etc.
      * Empty set can mean "every day" depending on your engine choice.
      */
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @CollectionTable(name = "dose_days_of_week", joinColumns = @JoinColumn(name = "dose_id"))
     @Enumerated(EnumType.STRING)
     @Column(name = "day_of_week", nullable = false)
@@ -50,7 +52,8 @@ public class Dose {
      * Times in the day, size should match timeFrequency.
      * Example: [07:00, 14:00] if timeFrequency = 2
      */
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @CollectionTable(name = "dose_times", joinColumns = @JoinColumn(name = "dose_id"))
     @Column(name = "time_of_day", nullable = false)
     private Set<LocalTime> times = new LinkedHashSet<>();
@@ -68,6 +71,20 @@ public class Dose {
     private LocalDate startDate;
     private LocalDate endDate;
 
+    /**
+     * Bumped whenever a schedule rule changes (frequency, days, times, start/end).
+     * Compiled schedules are cached per (id, scheduleVersion).
+     */
+    @Column(name = "schedule_version", nullable = false, columnDefinition = "bigint default 0")
+    private long scheduleVersion;
+
+    /**
+     * Occurrences exist for every scheduled instant up to (and including) this point.
+     * Nightly generation only extends the tail past it; rule changes are reconciled in place.
+     */
+    @Column(name = "materialized_through")
+    private LocalDateTime materializedThrough;
+
     /** Optional: notes like "after meals", "with water" */
     @Column(length = 500)
     private String instructions;
@@ -131,4 +148,8 @@ public class Dose {
     void onUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    public void bumpScheduleVersion() {
+        this.scheduleVersion++;
+    }
 }
@@ -4,7 +4,10 @@ import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Entity
 @Getter
@@ -21,11 +24,15 @@ import java.time.LocalDateTime;
         },
         indexes = {
                 @Index(name = "idx_occurrence_dose_scheduledat", columnList = "dose_id, scheduled_at"),
-                @Index(name = "idx_occurrence_status_scheduledat", columnList = "status, scheduled_at")
+                @Index(name = "idx_occurrence_status_scheduledat", columnList = "status, scheduled_at"),
+                @Index(name = "idx_occurrence_status_instant", columnList = "status, scheduled_instant")
         }
 )
 public class DoseOccurrence {
 
+    /** A DUE occurrence that is still not taken this long after scheduledAt becomes MISSED (and locked). */
+    public static final Duration MISSED_AFTER = Duration.ofHours(24);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,10 +43,14 @@ public class DoseOccurrence {
     @ToString.Exclude
     private Dose dose;
 
-    /** Exact time this should happen */
+    /** Exact time this should happen (wall time in the user's time zone) */
     @Column(name = "scheduled_at", nullable = false)
     private LocalDateTime scheduledAt;
 
+    /** scheduledAt resolved in the user's time zone; reminders and transitions scan by this */
+    @Column(name = "scheduled_instant")
+    private Instant scheduledInstant;
+
     /** SCHEDULED, DUE, TAKEN, MISSED, SKIPPED... */
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 30)
@@ -79,4 +90,37 @@ public class DoseOccurrence {
     void onUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    /**
+     * Status as of {@code now}, derived from the clock.
+     * The persisted status may lag behind (transitions are flipped in the background), reads should use this.
+     */
+    public OccurrenceStatus effectiveStatus(Instant now) {
+        return deriveStatus(status, dueAt(scheduledInstant, scheduledAt), takenAt, now);
+    }
+
+    /** Absolute due instant; rows written before zones were tracked fall back to the server zone. */
+    public static Instant dueAt(Instant scheduledInstant, LocalDateTime scheduledAt) {
+        if (scheduledInstant != null) return scheduledInstant;
+        return (scheduledAt == null) ? null : scheduledAt.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    /**
+     * SCHEDULED → DUE at the scheduled instant, DUE → MISSED 24h later unless taken.
+     * TAKEN / MISSED / SKIPPED are terminal and returned as-is.
+     */
+    public static OccurrenceStatus deriveStatus(
+            OccurrenceStatus persisted,
+            Instant scheduledAt,
+            LocalDateTime takenAt,
+            Instant now
+    ) {
+        OccurrenceStatus s = (persisted == null) ? OccurrenceStatus.SCHEDULED : persisted;
+        if (s != OccurrenceStatus.SCHEDULED && s != OccurrenceStatus.DUE) return s;
+        if (scheduledAt == null || now == null) return s;
+
+        if (scheduledAt.isAfter(now)) return s;
+        if (takenAt == null && !scheduledAt.isAfter(now.minus(MISSED_AFTER))) return OccurrenceStatus.MISSED;
+        return OccurrenceStatus.DUE;
+    }
 }
@@ -0,0 +1,60 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Closed (TAKEN / MISSED / SKIPPED) occurrences moved out of the hot dose_occurrence partitions.
+ *
+ * Rows keep their original id. The owner is denormalized so history reads need no join,
+ * and there is no FK to dose: history survives dose removal.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Table(
+        name = "dose_occurrence_archive",
+        indexes = @Index(name = "idx_occurrence_archive_user_scheduledat", columnList = "user_id, scheduled_at")
+)
+public class DoseOccurrenceArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "dose_id", nullable = false)
+    private Long doseId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "scheduled_at", nullable = false)
+    private LocalDateTime scheduledAt;
+
+    @Column(name = "scheduled_instant")
+    private Instant scheduledInstant;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private OccurrenceStatus status;
+
+    @Column(name = "taken_at")
+    private LocalDateTime takenAt;
+
+    @Column(length = 500)
+    private String note;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,45 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted number of occurrences a user has on a given day (all statuses).
+ *
+ * Maintained alongside dose_occurrence inserts/deletes with conditional increments
+ * (see OccurrenceDayLoadRepository), so the per-day dispenser capacity is checked
+ * without loading the occurrences themselves.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Table(
+        name = "occurrence_day_load",
+        uniqueConstraints = @UniqueConstraint(name = "uk_occurrence_day_load_user_day", columnNames = {"user_id", "day"})
+)
+public class OccurrenceDayLoad {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "occurrence_count", nullable = false)
+    private int occurrenceCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,39 +1,97 @@
 package com.azedcods.home_buddy_v2.model.dose;
 
-import com.azedcods.home_buddy_v2.service.dose.DoseOccurrenceService;
-import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.service.dose.GenerationRunReport;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceArchiver;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceGenerationExecutor;
+import com.azedcods.home_buddy_v2.service.dose.OccurrencePartitionMaintainer;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceTransitionScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.YearMonth;
 
 @Component
 public class OccurrenceScheduler {
 
-    private final DoseOccurrenceService occurrenceService;
-    private final DoseRepository doseRepo;
+    private static final Logger logger = LoggerFactory.getLogger(OccurrenceScheduler.class);
 
-    public OccurrenceScheduler(DoseOccurrenceService occurrenceService, DoseRepository doseRepo) {
-        this.occurrenceService = occurrenceService;
-        this.doseRepo = doseRepo;
+    private final OccurrenceGenerationExecutor generationExecutor;
+    private final OccurrenceTransitionScheduler transitionScheduler;
+    private final OccurrencePartitionMaintainer partitionMaintainer;
+    private final OccurrenceArchiver archiver;
+    private final int horizonDays;
+
+    public OccurrenceScheduler(
+            OccurrenceGenerationExecutor generationExecutor,
+            OccurrenceTransitionScheduler transitionScheduler,
+            OccurrencePartitionMaintainer partitionMaintainer,
+            OccurrenceArchiver archiver,
+            @Value("${homebuddy.generation.horizon-days:30}") int horizonDays
+    ) {
+        this.generationExecutor = generationExecutor;
+        this.transitionScheduler = transitionScheduler;
+        this.partitionMaintainer = partitionMaintainer;
+        this.archiver = archiver;
+        this.horizonDays = Math.max(1, horizonDays);
+    }
+
+    // Every 10 seconds: flip exactly the occurrences whose SCHEDULED->DUE / DUE->MISSED deadline passed
+    @Scheduled(fixedDelay = 10_000)
+    public void advanceTransitions() {
+        transitionScheduler.advance(Instant.now());
     }
 
-    // Every 15 minutes: update statuses (SCHEDULED->DUE, DUE->MISSED)
-    @Scheduled(cron = "0 */15 * * * *")
-    public void refreshDueMissed() {
-        occurrenceService.refreshDueAndMissed(LocalDateTime.now());
+    // Every minute: load newly generated SCHEDULED rows entering the lookahead
+    @Scheduled(fixedDelay = 60_000)
+    public void topUpTransitions() {
+        transitionScheduler.topUp();
     }
 
-    // Every day at 02:10: generate next 7 days for EVERY user who has doses
+    // Every hour: rebuild the deadline queue from the DB (drift correction, multi-node safety)
+    @Scheduled(cron = "0 5 * * * *")
+    public void reseedTransitions() {
+        transitionScheduler.reseed();
+    }
+
+    // Every day at 01:50: make sure next months' occurrence partitions exist before generation writes into them
+    @Scheduled(cron = "0 50 1 * * *")
+    public void ensureOccurrencePartitions() {
+        partitionMaintainer.ensurePartitions(YearMonth.now());
+    }
+
+    // Every day at 03:30: move old closed occurrences to the archive, drop emptied partitions
+    @Scheduled(cron = "0 30 3 * * *")
+    public void archiveClosedOccurrences() {
+        archiver.archive(LocalDateTime.now());
+    }
+
+    // Every day at 02:10: extend EVERY user's doses up to the horizon (only the missing tail per dose)
     @Scheduled(cron = "0 10 2 * * *")
-    public void generateNextWeekForAllUsers() {
+    public void extendHorizonForAllUsers() {
         LocalDateTime from = LocalDateTime.now().minusDays(1);
-        LocalDateTime to = LocalDateTime.now().plusDays(7);
+        LocalDateTime to = LocalDateTime.now().plusDays(horizonDays);
+
+        GenerationRunReport report = generationExecutor.run(from, to);
+        transitionScheduler.topUp();
+
+        logger.info("Nightly generation: users={}, ok={}, rejected={}, failed={}, retries={}, inserted={}, took={}ms",
+                report.outcomes().size(),
+                report.count(GenerationRunReport.Status.OK),
+                report.count(GenerationRunReport.Status.REJECTED),
+                report.count(GenerationRunReport.Status.FAILED),
+                report.totalRetries(),
+                report.totalInserted(),
+                report.duration().toMillis());
 
-        List<Long> userIds = doseRepo.findDistinctUserIdsWithDoses();
-        for (Long userId : userIds) {
-            occurrenceService.generateWindowForUser(userId, from, to);
+        for (GenerationRunReport.UserOutcome o : report.outcomes()) {
+            if (o.status() != GenerationRunReport.Status.OK) {
+                logger.warn("Generation {} for userId={} after {} attempt(s): {}", o.status(), o.userId(), o.attempts(), o.error());
+            }
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Monotonic per-user counter, bumped in the same transaction as any write to the user's occurrences.
+ * Backs the ETag of occurrence windows: an unchanged version means an unchanged window.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Table(
+        name = "occurrence_user_version",
+        uniqueConstraints = @UniqueConstraint(name = "uk_occurrence_user_version_user", columnNames = {"user_id"})
+)
+public class OccurrenceUserVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -2,7 +2,13 @@ package com.azedcods.home_buddy_v2.model.dose;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface ScheduleEngine {
 
@@ -12,10 +18,39 @@ public interface ScheduleEngine {
      */
     List<LocalDateTime> computeSchedule(Dose dose, LocalDateTime from, LocalDateTime to);
 
+    /**
+     * Lazy variant of {@link #computeSchedule}: datetimes are produced in ascending order, one at a time.
+     * Nothing is materialized up front, so callers can stop early and run in constant memory.
+     */
+    Iterator<LocalDateTime> iterateSchedule(Dose dose, LocalDateTime from, LocalDateTime to);
+
+    default Stream<LocalDateTime> streamSchedule(Dose dose, LocalDateTime from, LocalDateTime to) {
+        Spliterator<LocalDateTime> spliterator = Spliterators.spliteratorUnknownSize(
+                iterateSchedule(dose, from, to),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * All doses merged in time order (k-way merge over the per-dose iterators).
+     * Ties at the same instant are ordered by dose id.
+     */
+    default Stream<ScheduledDose> streamMerged(Collection<Dose> doses, LocalDateTime from, LocalDateTime to) {
+        Spliterator<ScheduledDose> spliterator = Spliterators.spliteratorUnknownSize(
+                new ScheduleMergeIterator(this, doses, from, to),
+                Spliterator.ORDERED | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(spliterator, false);
+    }
+
     /**
      * Helper: clamp date range to day boundaries.
      */
     default LocalDate startDay(LocalDateTime from) {
         return from.toLocalDate();
     }
+
+    /** One occurrence of one dose, as produced by {@link #streamMerged}. */
+    record ScheduledDose(Dose dose, LocalDateTime at) {}
 }
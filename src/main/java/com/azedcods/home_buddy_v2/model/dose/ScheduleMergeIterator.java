@@ -0,0 +1,55 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * K-way merge of per-dose schedule iterators.
+ * Holds one pending datetime per dose, so memory is O(doses) regardless of the window length.
+ */
+class ScheduleMergeIterator implements Iterator<ScheduleEngine.ScheduledDose> {
+
+    private static final Comparator<Head> ORDER = Comparator
+            .comparing((Head h) -> h.at)
+            .thenComparing(h -> h.dose.getId(), Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(ORDER);
+
+    ScheduleMergeIterator(ScheduleEngine engine, Collection<Dose> doses, LocalDateTime from, LocalDateTime to) {
+        if (doses == null) return;
+        for (Dose d : doses) {
+            Iterator<LocalDateTime> it = engine.iterateSchedule(d, from, to);
+            if (it.hasNext()) heads.add(new Head(d, it, it.next()));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public ScheduleEngine.ScheduledDose next() {
+        Head head = heads.poll();
+        if (head == null) throw new NoSuchElementException();
+
+        ScheduleEngine.ScheduledDose out = new ScheduleEngine.ScheduledDose(head.dose, head.at);
+        if (head.rest.hasNext()) {
+            head.at = head.rest.next();
+            heads.add(head);
+        }
+        return out;
+    }
+
+    private static final class Head {
+        final Dose dose;
+        final Iterator<LocalDateTime> rest;
+        LocalDateTime at;
+
+        Head(Dose dose, Iterator<LocalDateTime> rest, LocalDateTime at) {
+            this.dose = dose;
+            this.rest = rest;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import java.time.*;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wall time → instant for one zone, with the UTC offset of each local day memoized.
+ *
+ * Almost every day has a single offset: converting a schedule instant is then one map hit and an
+ * addition. Only the (rare) days holding a DST transition go through the full {@link ZonedDateTime}
+ * resolution: a time in the gap is shifted forward, a time in the overlap takes the earlier offset.
+ */
+public final class ZonedDayOffsets {
+
+    private static final int MAX_CACHED_DAYS = 4_096;
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+
+    // Empty = the day holds a transition
+    private final ConcurrentHashMap<LocalDate, Optional<ZoneOffset>> dayOffsets = new ConcurrentHashMap<>();
+
+    public ZonedDayOffsets(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public Instant toInstant(LocalDateTime local) {
+        if (rules.isFixedOffset()) return local.toInstant(rules.getOffset(Instant.EPOCH));
+
+        Optional<ZoneOffset> offset = offsetOf(local.toLocalDate());
+        if (offset.isPresent()) return local.toInstant(offset.get());
+
+        return ZonedDateTime.ofLocal(local, zone, null).toInstant();
+    }
+
+    private Optional<ZoneOffset> offsetOf(LocalDate day) {
+        Optional<ZoneOffset> hit = dayOffsets.get(day);
+        if (hit != null) return hit;
+
+        // Days are only ever a few horizons wide: a full reset is cheaper than an LRU
+        if (dayOffsets.size() >= MAX_CACHED_DAYS) dayOffsets.clear();
+        return dayOffsets.computeIfAbsent(day, this::resolveDay);
+    }
+
+    private Optional<ZoneOffset> resolveDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        if (rules.getTransition(start) != null) return Optional.empty();
+
+        ZoneOffset offset = rules.getOffset(start);
+        ZoneOffsetTransition next = rules.nextTransition(start.toInstant(offset));
+        Instant dayEnd = day.plusDays(1).atStartOfDay().toInstant(offset);
+
+        if (next != null && next.getInstant().isBefore(dayEnd)) return Optional.empty();
+        return Optional.of(offset);
+    }
+}
@@ -16,6 +16,7 @@ import java.time.Instant;
 @ToString
 @Table(name = "notification", indexes = {
         @Index(name = "idx_notification_recipient_created", columnList = "recipient_user_id, created_at"),
+        @Index(name = "idx_notification_created", columnList = "created_at"), // admin all-users listing
         @Index(name = "idx_notification_recipient_readat", columnList = "recipient_user_id, read_at"),
         @Index(name = "idx_notification_type", columnList = "type"),
         @Index(name = "idx_notification_rule", columnList = "rule"),
@@ -72,6 +73,10 @@ public class Notification {
     @Column(name = "related_entity_id", length = 60)
     private String relatedEntityId;
 
+    // > 1 for a digest of coalesced emits (title/message are the latest ones)
+    @Column(name = "occurrence_count", nullable = false, columnDefinition = "integer not null default 1")
+    private int occurrenceCount = 1;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -0,0 +1,35 @@
+package com.azedcods.home_buddy_v2.model.notif;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Append-only log of deleted (recipient, key) cooldowns. Every node tails it by creation time to drop the
+ * matching entries of its in-memory cooldown index; rows are purged once no index can still hold them.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "notification_cooldown_eviction", indexes = {
+        @Index(name = "idx_notification_cooldown_eviction_created", columnList = "created_at")
+})
+public class NotificationCooldownEviction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_user_id", nullable = false)
+    private Long recipientUserId;
+
+    @Column(name = "notification_key", nullable = false, length = 200)
+    private String notificationKey;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
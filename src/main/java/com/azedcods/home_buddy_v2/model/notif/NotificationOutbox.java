@@ -0,0 +1,79 @@
+package com.azedcods.home_buddy_v2.model.notif;
+
+import com.azedcods.home_buddy_v2.enums.NotificationRule;
+import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
+import com.azedcods.home_buddy_v2.enums.NotificationType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Pending emit, appended in the caller's transaction by NotificationEngine and turned into a
+ * {@link Notification} by the outbox dispatcher. Users are plain ids (no FK): appending costs one insert.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_coalesce", columnList = "recipient_user_id, rule")
+})
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_user_id", nullable = false)
+    private Long recipientUserId;
+
+    @Column(name = "actor_user_id")
+    private Long actorUserId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rule", nullable = false, length = 60)
+    private NotificationRule rule;
+
+    @Column(name = "notification_key", length = 200)
+    private String notificationKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private NotificationType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private NotificationSeverity severity;
+
+    @Column(nullable = false, length = 180)
+    private String title;
+
+    @Column(nullable = false, length = 2000)
+    private String message;
+
+    @Column(name = "source_module", length = 60)
+    private String sourceModule;
+
+    @Column(name = "action_url", length = 300)
+    private String actionUrl;
+
+    @Column(name = "related_entity_type", length = 60)
+    private String relatedEntityType;
+
+    @Column(name = "related_entity_id", length = 60)
+    private String relatedEntityId;
+
+    @Column(name = "cooldown_seconds", nullable = false)
+    private long cooldownSeconds;
+
+    // Set for coalesced rules: the row waits until then, and takes its (user, rule) siblings along
+    @Column(name = "coalesce_until")
+    private Instant coalesceUntil;
+
+    // Emit time: becomes the notification's createdAt and anchors its cooldown
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,25 @@
+package com.azedcods.home_buddy_v2.model.notif;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Unread notifications of one user, kept in step with the notification table (see NotificationUnreadCounters). */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "notification_unread_counter")
+public class NotificationUnreadCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long unread;
+}
@@ -0,0 +1,28 @@
+package com.azedcods.home_buddy_v2.model.notif;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One slice of the all-users unread total (users are spread by {@code userId mod stripes}):
+ * concurrent writers rarely touch the same row, the admin total is the sum of a handful of rows.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "notification_unread_stripe")
+public class NotificationUnreadStripe {
+
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+
+    @Column(nullable = false)
+    private long unread;
+}
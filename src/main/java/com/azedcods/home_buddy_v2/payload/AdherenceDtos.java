@@ -0,0 +1,48 @@
+package com.azedcods.home_buddy_v2.payload;
+
+import com.azedcods.home_buddy_v2.enums.AdherenceGranularity;
+import com.azedcods.home_buddy_v2.enums.AdherenceGroupBy;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class AdherenceDtos {
+
+    public record Report(
+            LocalDate from,
+            LocalDate to,
+            AdherenceGranularity granularity,
+            AdherenceGroupBy groupBy,
+            List<Series> series
+    ) {}
+
+    /** key: userId, doseId or medicationId depending on groupBy. */
+    public record Series(
+            Long key,
+            Summary summary,
+            List<Period> periods
+    ) {}
+
+    /** rate is null when nothing was due in the period. */
+    public record Period(
+            LocalDate start,
+            int taken,
+            int missed,
+            Double rate
+    ) {}
+
+    /**
+     * Latency percentiles are bucket upper bounds in minutes (null = later than the last bucket).
+     * Streaks count consecutive days with outcomes and no miss; currentStreakDays ends at the window end.
+     */
+    public record Summary(
+            int taken,
+            int missed,
+            Double rate,
+            Double latencyMeanMinutes,
+            Integer latencyP50Minutes,
+            Integer latencyP90Minutes,
+            int currentStreakDays,
+            int longestStreakDays
+    ) {}
+}
@@ -7,6 +7,7 @@ import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.Set;
 
 public class DoseDtos {
@@ -36,6 +37,37 @@ public class DoseDtos {
             @Size(max = 500) String instructions
     ) {}
 
+    /** Dry-run result: per-day load of the user's doses with the proposal applied. */
+    public record PreviewResponse(
+            LocalDate from,
+            LocalDate to,
+            int maxPerDay,
+            boolean fits,
+            List<PreviewDay> days,
+            List<PreviewConflict> conflicts
+    ) {}
+
+    public record PreviewDay(
+            LocalDate date,
+            int existing,
+            int proposed,
+            int total
+    ) {}
+
+    public record PreviewConflict(
+            LocalDate date,
+            int total,
+            int overBy,
+            List<PreviewSlot> slots
+    ) {}
+
+    /** doseId is null for the proposed dose of a create preview. */
+    public record PreviewSlot(
+            Long doseId,
+            LocalTime time,
+            boolean proposed
+    ) {}
+
     public record Response(
             Long id,
             Long userId,
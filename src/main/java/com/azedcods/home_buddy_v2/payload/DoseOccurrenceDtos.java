@@ -1,7 +1,10 @@
 package com.azedcods.home_buddy_v2.payload;
 
 import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,6 +30,31 @@ public class DoseOccurrenceDtos {
             String note
     ) {}
 
+    public record BulkStatusRequest(
+            @NotEmpty @Size(max = 500) List<@Valid @NotNull BulkStatusItem> items
+    ) {}
+
+    public record BulkStatusItem(
+            @NotNull Long occurrenceId,
+            @NotNull OccurrenceStatus status,
+            LocalDateTime takenAt,
+            String note
+    ) {}
+
+    public record BulkStatusItemResult(
+            Long occurrenceId,
+            boolean applied,
+            Response occurrence,
+            String error,
+            String warning
+    ) {}
+
+    public record BulkStatusResponse(
+            int applied,
+            int rejected,
+            List<BulkStatusItemResult> results
+    ) {}
+
     public record GenerateRequest(
             @NotNull LocalDateTime from,
             @NotNull LocalDateTime to
@@ -37,4 +65,11 @@ public class DoseOccurrenceDtos {
             LocalDateTime to,
             List<Response> items
     ) {}
+
+    public record WindowPageResponse(
+            LocalDateTime from,
+            LocalDateTime to,
+            List<Response> items,
+            String nextCursor
+    ) {}
 }
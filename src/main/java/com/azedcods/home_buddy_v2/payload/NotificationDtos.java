@@ -5,6 +5,7 @@ import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
 import com.azedcods.home_buddy_v2.enums.NotificationType;
 
 import java.time.Instant;
+import java.util.List;
 
 public class NotificationDtos {
 
@@ -39,8 +40,19 @@ public class NotificationDtos {
             String relatedEntityId,
             Instant createdAt,
             Instant readAt,
-            boolean read
+            boolean read,
+            int occurrenceCount
+    ) {}
+
+    // Keyset page: no total count; pass nextCursor back as "cursor" while hasMore
+    public record CursorPage(
+            List<Response> items,
+            String nextCursor,
+            boolean hasMore
     ) {}
 
     public record UnreadCountResponse(Long userId, long unreadCount) {}
+
+    // Pushed on the notification stream when the user's unread count moves
+    public record UnreadDelta(Long userId, long delta) {}
 }
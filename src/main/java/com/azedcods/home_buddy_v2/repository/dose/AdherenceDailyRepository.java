@@ -0,0 +1,27 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.AdherenceDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AdherenceDailyRepository extends JpaRepository<AdherenceDaily, Long> {
+
+    @Query("""
+            select a from AdherenceDaily a
+            where a.userId = :userId
+              and a.day between :fromDay and :toDay
+            order by a.day asc
+            """)
+    List<AdherenceDaily> findForUser(
+            @Param("userId") Long userId,
+            @Param("fromDay") LocalDate fromDay,
+            @Param("toDay") LocalDate toDay
+    );
+
+    @Query(value = "select exists (select 1 from adherence_daily)", nativeQuery = true)
+    boolean anyRollups();
+}
@@ -0,0 +1,16 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import java.time.LocalDate;
+
+/**
+ * Scalar read of an occurrence_day_load row.
+ * Counters are changed by native conditional updates, so reads never go through managed entities.
+ */
+public interface DayLoad {
+
+    Long getUserId();
+
+    LocalDate getDay();
+
+    Integer getOccurrenceCount();
+}
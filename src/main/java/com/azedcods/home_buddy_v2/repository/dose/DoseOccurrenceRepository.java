@@ -2,10 +2,13 @@ package com.azedcods.home_buddy_v2.repository.dose;
 
 import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
 import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface DoseOccurrenceRepository extends JpaRepository<DoseOccurrence, Long> {
@@ -15,49 +18,116 @@ public interface DoseOccurrenceRepository extends JpaRepository<DoseOccurrence,
             Long userId, LocalDateTime from, LocalDateTime to
     );
 
+    // Keyset page of a user's window, ordered by (scheduledAt, id), strictly after the cursor
     @Query("""
-            select o.scheduledAt from DoseOccurrence o
-            where o.dose.id = :doseId
+            select o from DoseOccurrence o
+            where o.dose.user.userId = :userId
               and o.scheduledAt between :from and :to
+              and (o.scheduledAt > :afterAt or (o.scheduledAt = :afterAt and o.id > :afterId))
+            order by o.scheduledAt asc, o.id asc
             """)
-    List<LocalDateTime> findExistingTimesForDoseInRange(
-            @Param("doseId") Long doseId,
+    List<DoseOccurrence> findWindowPage(
+            @Param("userId") Long userId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterAt") LocalDateTime afterAt,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    // Latest row of a dose, whatever generated it (the watermark may lag behind on-demand generation)
+    @Query("select max(o.scheduledAt) from DoseOccurrence o where o.dose.id = :doseId")
+    LocalDateTime findLastScheduledAt(@Param("doseId") Long doseId);
+
+    // Set-based generation: every existing (user, dose, time) of a user partition in one query
+    @Query("""
+            select o.dose.user.userId as userId,
+                   o.dose.id as doseId,
+                   o.scheduledAt as scheduledAt
+            from DoseOccurrence o
+            where o.dose.user.userId in :userIds
+              and o.scheduledAt between :from and :to
+            """)
+    List<OccurrenceSlot> findSlotsForUsersInRange(
+            @Param("userIds") Collection<Long> userIds,
             @Param("from") LocalDateTime from,
             @Param("to") LocalDateTime to
     );
 
-    @Modifying
+    // Transition scheduler: pending SCHEDULED rows up to the lookahead, plus every open DUE row
     @Query("""
-            update DoseOccurrence o
-               set o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.DUE,
-                   o.note = :note
-             where o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.SCHEDULED
-               and o.scheduledAt <= :now
+            select o.id as id, o.scheduledInstant as scheduledInstant, o.status as status
+            from DoseOccurrence o
+            where (o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.SCHEDULED
+                   and o.scheduledInstant <= :until)
+               or (o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.DUE
+                   and o.takenAt is null
+                   and o.scheduledInstant is not null)
             """)
-    int bumpScheduledToDue(@Param("now") LocalDateTime now, @Param("note") String note);
+    List<TransitionCandidate> findTransitionCandidates(@Param("until") Instant until);
 
+    @Query("""
+            select o.id as id, o.scheduledInstant as scheduledInstant, o.status as status
+            from DoseOccurrence o
+            where o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.SCHEDULED
+              and o.scheduledInstant <= :until
+            """)
+    List<TransitionCandidate> findScheduledUntil(@Param("until") Instant until);
+
+    // Conditional flips by id: rows changed meanwhile (TAKEN, deleted, other node, moved instant) are left alone
     @Modifying
     @Query("""
             update DoseOccurrence o
-               set o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.MISSED,
+               set o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.DUE,
                    o.note = :note
-             where o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.DUE
-               and o.takenAt is null
-               and o.scheduledAt <= :missedCutoff
+             where o.id in :ids
+               and o.status = com.azedcods.home_buddy_v2.enums.OccurrenceStatus.SCHEDULED
+               and o.scheduledInstant <= :now
             """)
-    int bumpDueToMissed(@Param("missedCutoff") LocalDateTime missedCutoff, @Param("note") String note);
+    int markDueByIds(@Param("ids") Collection<Long> ids, @Param("note") String note, @Param("now") Instant now);
+
+    // History views: hot partitions + archive, newest first
+    @Query(value = """
+            select o.id as "id", o.dose_id as "doseId", o.scheduled_at as "scheduledAt",
+                   o.scheduled_instant as "scheduledInstant", o.status as "status",
+                   o.taken_at as "takenAt", o.note as "note", false as "archived"
+              from dose_occurrence o
+              join dose d on d.id = o.dose_id
+             where d.user_id = :userId
+               and o.scheduled_at between :from and :to
+            union all
+            select a.id, a.dose_id, a.scheduled_at, a.scheduled_instant, a.status,
+                   a.taken_at, a.note, true
+              from dose_occurrence_archive a
+             where a.user_id = :userId
+               and a.scheduled_at between :from and :to
+             order by 3 desc
+            """, nativeQuery = true)
+    List<OccurrenceHistoryRow> findHistoryForUser(
+            @Param("userId") Long userId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    // Status changes lock their rows first (id order): the transition scheduler's conditional flips wait, then skip them
+    @Query(value = "select id from dose_occurrence where id in (:ids) order by id for update", nativeQuery = true)
+    List<Long> lockByIds(@Param("ids") Collection<Long> ids);
+
+    // Bulk status updates: every requested occurrence with its owner in one query
+    @EntityGraph(attributePaths = {"dose", "dose.user"})
+    List<DoseOccurrence> findByIdIn(Collection<Long> ids);
 
-    // ✅ NEW: used by MedicationReminderJob
+    // ✅ Used by MedicationReminderJob: instant ranges, every user's time zone in one scan
     @EntityGraph(attributePaths = {"dose", "dose.user"})
-    List<DoseOccurrence> findByStatusAndTakenAtIsNullAndScheduledAtBetween(
+    List<DoseOccurrence> findByStatusAndTakenAtIsNullAndScheduledInstantBetween(
             OccurrenceStatus status,
-            LocalDateTime from,
-            LocalDateTime to
+            Instant from,
+            Instant to
     );
 
     @EntityGraph(attributePaths = {"dose", "dose.user"})
-    List<DoseOccurrence> findByStatusAndTakenAtIsNullAndScheduledAtLessThanEqual(
+    List<DoseOccurrence> findByStatusAndTakenAtIsNullAndScheduledInstantLessThanEqual(
             OccurrenceStatus status,
-            LocalDateTime to
+            Instant to
     );
 }
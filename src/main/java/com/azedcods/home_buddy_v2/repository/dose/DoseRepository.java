@@ -2,14 +2,51 @@ package com.azedcods.home_buddy_v2.repository.dose;
 
 import com.azedcods.home_buddy_v2.model.dose.Dose;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface DoseRepository extends JpaRepository<Dose, Long> {
 
     List<Dose> findByUser_UserId(Long userId);
 
+    // Set-based generation: rule versions + watermarks of a user partition (no element collections)
+    @Query("""
+            select d.id as id, d.user.userId as userId, d.scheduleVersion as scheduleVersion,
+                   d.materializedThrough as materializedThrough
+            from Dose d
+            where d.user.userId in :userIds
+            """)
+    List<DoseScheduleKey> findScheduleKeysForUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Compiled-schedule cache misses: doses with their schedule rules in one round trip
+    @Query("""
+            select distinct d from Dose d
+            left join fetch d.daysOfWeek
+            left join fetch d.times
+            where d.id in :ids
+            """)
+    List<Dose> findWithScheduleRulesByIds(@Param("ids") Collection<Long> ids);
+
+    // Only moves forward, and only for the rule version the rows were generated from
+    @Modifying
+    @Query("""
+            update Dose d
+               set d.materializedThrough = :through
+             where d.id = :id
+               and d.scheduleVersion = :version
+               and (d.materializedThrough is null or d.materializedThrough < :through)
+            """)
+    int advanceMaterializedThrough(
+            @Param("id") Long id,
+            @Param("version") long version,
+            @Param("through") LocalDateTime through
+    );
+
     @Query("select distinct d.user.userId from Dose d where d.user is not null")
     List<Long> findDistinctUserIdsWithDoses();
 }
@@ -0,0 +1,18 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import java.time.LocalDateTime;
+
+/**
+ * (dose, owner, rule version, watermark) without the schedule element collections.
+ * Enough to hit the compiled schedule cache and to know which tail is missing.
+ */
+public interface DoseScheduleKey {
+
+    Long getId();
+
+    Long getUserId();
+
+    Long getScheduleVersion();
+
+    LocalDateTime getMaterializedThrough();
+}
@@ -0,0 +1,108 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.OccurrenceDayLoad;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface OccurrenceDayLoadRepository extends JpaRepository<OccurrenceDayLoad, Long> {
+
+    @Query("""
+            select l.userId as userId, l.day as day, l.occurrenceCount as occurrenceCount
+            from OccurrenceDayLoad l
+            where l.userId = :userId
+              and l.day between :from and :to
+            """)
+    List<DayLoad> findLoads(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+            select l.userId as userId, l.day as day, l.occurrenceCount as occurrenceCount
+            from OccurrenceDayLoad l
+            where l.userId in :userIds
+              and l.day between :from and :to
+            """)
+    List<DayLoad> findLoadsForUsers(
+            @Param("userIds") Collection<Long> userIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to
+    );
+
+    /**
+     * Add {@code amount} to a user's day only if the result stays within {@code max}.
+     * Creates the row on first use. The upsert takes the row lock, so concurrent callers serialize.
+     *
+     * @return 1 if reserved, 0 if the day would be oversubscribed
+     */
+    @Modifying
+    @Query(value = """
+            insert into occurrence_day_load (user_id, day, occurrence_count, updated_at)
+            select :userId, :day, :amount, now()
+            where :amount <= :max
+            on conflict on constraint uk_occurrence_day_load_user_day do update
+               set occurrence_count = occurrence_day_load.occurrence_count + excluded.occurrence_count,
+                   updated_at = now()
+             where occurrence_day_load.occurrence_count + excluded.occurrence_count <= :max
+            """, nativeQuery = true)
+    int tryReserve(
+            @Param("userId") Long userId,
+            @Param("day") LocalDate day,
+            @Param("amount") int amount,
+            @Param("max") int max
+    );
+
+    @Modifying
+    @Query(value = """
+            update occurrence_day_load
+               set occurrence_count = greatest(occurrence_count - :amount, 0),
+                   updated_at = now()
+             where user_id = :userId
+               and day = :day
+            """, nativeQuery = true)
+    int release(@Param("userId") Long userId, @Param("day") LocalDate day, @Param("amount") int amount);
+
+    // Dose removal: subtract every occurrence of the dose from its days in one statement
+    @Modifying
+    @Query(value = """
+            update occurrence_day_load l
+               set occurrence_count = greatest(l.occurrence_count - x.n, 0),
+                   updated_at = now()
+              from (select d.user_id, cast(o.scheduled_at as date) as day, count(*) as n
+                      from dose_occurrence o
+                      join dose d on d.id = o.dose_id
+                     where o.dose_id = :doseId
+                     group by d.user_id, cast(o.scheduled_at as date)) x
+             where l.user_id = x.user_id
+               and l.day = x.day
+            """, nativeQuery = true)
+    int releaseForDose(@Param("doseId") Long doseId);
+
+    // Reconcile: recount users' days from dose_occurrence (backfill / drift correction)
+    @Modifying
+    @Query(value = """
+            delete from occurrence_day_load
+             where user_id in (:userIds)
+            """, nativeQuery = true)
+    int deleteForUsers(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = """
+            insert into occurrence_day_load (user_id, day, occurrence_count, updated_at)
+            select d.user_id, cast(o.scheduled_at as date), count(*), now()
+              from dose_occurrence o
+              join dose d on d.id = o.dose_id
+             where d.user_id in (:userIds)
+             group by d.user_id, cast(o.scheduled_at as date)
+            on conflict on constraint uk_occurrence_day_load_user_day do update
+               set occurrence_count = excluded.occurrence_count,
+                   updated_at = now()
+            """, nativeQuery = true)
+    int recountForUsers(@Param("userIds") Collection<Long> userIds);
+
+    @Query(value = "select exists (select 1 from occurrence_day_load)", nativeQuery = true)
+    boolean anyLoads();
+}
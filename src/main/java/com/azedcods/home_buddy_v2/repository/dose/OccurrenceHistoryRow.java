@@ -0,0 +1,26 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * One occurrence of a history view, from the hot table or the archive.
+ */
+public interface OccurrenceHistoryRow {
+
+    Long getId();
+
+    Long getDoseId();
+
+    LocalDateTime getScheduledAt();
+
+    Instant getScheduledInstant();
+
+    String getStatus();
+
+    LocalDateTime getTakenAt();
+
+    String getNote();
+
+    Boolean getArchived();
+}
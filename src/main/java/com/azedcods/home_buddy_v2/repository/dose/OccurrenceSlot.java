@@ -0,0 +1,16 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight (user, dose, time) projection of an existing occurrence.
+ * Used by set-based generation so we never hydrate full DoseOccurrence entities.
+ */
+public interface OccurrenceSlot {
+
+    Long getUserId();
+
+    Long getDoseId();
+
+    LocalDateTime getScheduledAt();
+}
@@ -0,0 +1,42 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.OccurrenceUserVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface OccurrenceUserVersionRepository extends JpaRepository<OccurrenceUserVersion, Long> {
+
+    @Query("select v.version from OccurrenceUserVersion v where v.userId = :userId")
+    Optional<Long> findVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = """
+            insert into occurrence_user_version (user_id, version, updated_at)
+            select u.user_id, 1, now()
+              from unnest(cast(:userIds as bigint[])) as u(user_id)
+            on conflict on constraint uk_occurrence_user_version_user do update
+               set version = occurrence_user_version.version + 1,
+                   updated_at = now()
+            """, nativeQuery = true)
+    int bumpUsers(@Param("userIds") Long[] userIds);
+
+    // Owners looked up from the occurrences themselves (transition flips span many users)
+    @Modifying
+    @Query(value = """
+            insert into occurrence_user_version (user_id, version, updated_at)
+            select distinct d.user_id, 1, now()
+              from dose_occurrence o
+              join dose d on d.id = o.dose_id
+             where o.id in (:occurrenceIds)
+             order by 1
+            on conflict on constraint uk_occurrence_user_version_user do update
+               set version = occurrence_user_version.version + 1,
+                   updated_at = now()
+            """, nativeQuery = true)
+    int bumpOwnersOf(@Param("occurrenceIds") Collection<Long> occurrenceIds);
+}
@@ -0,0 +1,17 @@
+package com.azedcods.home_buddy_v2.repository.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+
+import java.time.Instant;
+
+/**
+ * Minimal projection used to (re)load pending SCHEDULED→DUE and DUE→MISSED deadlines.
+ */
+public interface TransitionCandidate {
+
+    Long getId();
+
+    Instant getScheduledInstant();
+
+    OccurrenceStatus getStatus();
+}
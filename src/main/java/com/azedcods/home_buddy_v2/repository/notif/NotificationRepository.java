@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +41,30 @@ public interface NotificationRepository
     """)
     int markAllRead(@Param("userId") Long userId, @Param("now") Instant now);
 
+    // Conditional writes: the affected row count tells exactly whether the unread counter moves
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+        update Notification n
+        set n.readAt = :now
+        where n.id = :id
+          and n.readAt is null
+    """)
+    int markReadIfUnread(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("delete from Notification n where n.id = :id and n.readAt is null")
+    int deleteIfUnread(@Param("id") Long id);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("delete from Notification n where n.id = :id and n.readAt is not null")
+    int deleteIfRead(@Param("id") Long id);
+
+    List<Notification> findByRecipientUser_UserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Pageable pageable);
+
+    List<Notification> findByRecipientUser_UserIdAndIdLessThanEqualOrderByIdDesc(Long userId, Long upToId, Pageable pageable);
+
+    List<Notification> findByIdInOrderByIdAsc(Collection<Long> ids);
+
     List<Notification> findByRecipientUser_UserIdOrderByCreatedAtAsc(Long userId, Pageable pageable);
 
     Optional<Notification> findTopByRecipientUser_UserIdAndNotificationKeyOrderByCreatedAtDesc(Long userId, String notificationKey);
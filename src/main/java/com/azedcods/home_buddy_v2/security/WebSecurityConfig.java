@@ -98,6 +98,7 @@ public class WebSecurityConfig {
                         // Users can still access their own via method-level checks (recommended).
                         .requestMatchers("/api/doses/**").hasAnyRole("USER", "CAREGIVER", "ADMIN")
                         .requestMatchers("/api/v2/dose-occurrences/**").hasAnyRole("USER", "CAREGIVER", "ADMIN")
+                        .requestMatchers("/api/adherence/**").hasAnyRole("USER", "CAREGIVER", "ADMIN")
 
                         .anyRequest().authenticated()
                 );
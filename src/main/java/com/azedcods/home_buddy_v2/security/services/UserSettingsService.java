@@ -3,18 +3,22 @@ package com.azedcods.home_buddy_v2.security.services;
 import com.azedcods.home_buddy_v2.model.auth.UserSettings;
 import com.azedcods.home_buddy_v2.payload.SettingsDtos;
 import com.azedcods.home_buddy_v2.repository.auth.UserSettingsRepository;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceInstantMaintainer;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.util.Locale;
+import java.util.Objects;
 
 @Service
 public class UserSettingsService {
 
     private final UserSettingsRepository repo;
+    private final OccurrenceInstantMaintainer instantMaintainer;
 
-    public UserSettingsService(UserSettingsRepository repo) {
+    public UserSettingsService(UserSettingsRepository repo, OccurrenceInstantMaintainer instantMaintainer) {
         this.repo = repo;
+        this.instantMaintainer = instantMaintainer;
     }
 
     @Transactional
@@ -45,6 +49,7 @@ public class UserSettingsService {
         if (req.displayName() != null) s.setDisplayName(trimToNull(req.displayName(), 80));
         if (req.avatarColor() != null) s.setAvatarColor(trimToNull(req.avatarColor(), 30));
 
+        String previousZone = s.getTimeZone();
         if (req.timeZone() != null) s.setTimeZone(trimToNull(req.timeZone(), 60));
         if (req.locale() != null) s.setLocale(trimToNull(req.locale(), 20));
         if (req.themeMode() != null) s.setThemeMode(req.themeMode());
@@ -54,6 +59,12 @@ public class UserSettingsService {
         if (req.doseReminders() != null) s.setDoseReminders(req.doseReminders());
 
         UserSettings saved = repo.save(s);
+
+        // Reminders follow the new zone: same wall times, new instants
+        if (!Objects.equals(previousZone, saved.getTimeZone())) {
+            instantMaintainer.rezoneUser(userId);
+        }
+
         return toResponse(saved);
     }
 
@@ -17,9 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 
 @Service
 @Transactional
@@ -203,6 +201,60 @@ public class DispenserService {
         emitStockState(robotId, afterTotal);
     }
 
+    /**
+     * Batch form of {@link #dispenseForScheduledTime}: one compartment read, one aggregated
+     * decrement per day, one stock check. Days that run short get a single notification.
+     *
+     * @return days without a compartment (nothing dispensed for them); unlike the single form this does not
+     *         throw, so the caller's other changes still commit
+     */
+    public SortedSet<Integer> dispenseForScheduledDays(String robotId, Map<Integer, Integer> pillsByDayOfMonth) {
+        if (robotId == null || robotId.isBlank()) throw new IllegalArgumentException("robotId is required");
+        if (pillsByDayOfMonth == null || pillsByDayOfMonth.isEmpty()) return new TreeSet<>();
+
+        getOrCreateForRobot(robotId);
+
+        List<DispenserCompartment> compartments =
+                compartmentRepo.findByDispenser_Robot_IdOrderByDayOfMonthAsc(robotId);
+
+        long afterTotal = 0;
+        SortedSet<Integer> shortDays = new TreeSet<>();
+        Set<Integer> seen = new HashSet<>();
+
+        for (DispenserCompartment c : compartments) {
+            int current = c.getPillsCount() == null ? 0 : c.getPillsCount();
+            Integer day = c.getDayOfMonth();
+            int wanted = (day == null) ? 0 : pillsByDayOfMonth.getOrDefault(day, 0);
+
+            if (wanted > 0) {
+                seen.add(day);
+                if (current < wanted) shortDays.add(day);
+                current = Math.max(0, current - wanted);
+                c.setPillsCount(current);
+            }
+            afterTotal += current;
+        }
+
+        SortedSet<Integer> missingDays = new TreeSet<>(pillsByDayOfMonth.keySet());
+        missingDays.removeAll(seen);
+
+        if (!shortDays.isEmpty()) {
+            emitToAssistedUser(robotId,
+                    NotificationRule.DISPENSER_EMPTY,
+                    NotificationType.DISPENSER,
+                    NotificationSeverity.CRITICAL,
+                    "Dispenser empty",
+                    "Not enough pills for day(s) " + shortDays + ". Refill required.",
+                    "/medication?tab=dispenser",
+                    "DISPENSER_EMPTY:robot=" + robotId + ":days=" + shortDays,
+                    Duration.ofHours(6)
+            );
+        }
+
+        emitStockState(robotId, afterTotal);
+        return missingDays;
+    }
+
     /* ------------------------- robot resolution ------------------------- */
 
     @Transactional(readOnly = true)
@@ -216,6 +268,20 @@ public class DispenserService {
                 .orElse(null);
     }
 
+    /**
+     * One robot lookup for many users (bulk jobs).
+     * Same rule as {@link #resolveRobotIdForUser}: first robot assisting the user wins.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, String> resolveRobotIdsByUser() {
+        Map<Long, String> out = new HashMap<>();
+        for (Robot r : robotRepo.findAll()) {
+            if (r.getAssistedUser() == null || r.getAssistedUser().getUserId() == null) continue;
+            out.putIfAbsent(r.getAssistedUser().getUserId(), r.getId());
+        }
+        return out;
+    }
+
     /* ------------------------- notifications ------------------------- */
 
     private void emitStockState(String robotId, long totalPills) {
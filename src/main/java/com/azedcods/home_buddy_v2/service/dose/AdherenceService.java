@@ -0,0 +1,325 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.enums.AdherenceGranularity;
+import com.azedcods.home_buddy_v2.enums.AdherenceGroupBy;
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import com.azedcods.home_buddy_v2.model.dose.AdherenceDaily;
+import com.azedcods.home_buddy_v2.payload.AdherenceDtos;
+import com.azedcods.home_buddy_v2.repository.dose.AdherenceDailyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Adherence (taken / (taken + missed)) from incremental daily rollups (adherence_daily).
+ *
+ * - {@link #record} is called in the transaction that makes occurrences TAKEN or MISSED
+ *   (status endpoints, bulk updates, automatic MISSED flips) and upserts one row per (dose, day)
+ * - {@link #report} answers any window from the rollups: per day / week / month, per user / dose /
+ *   medication, with streaks and late-take latency percentiles, in O(days) rows
+ *
+ * Latency is (takenAt - scheduledAt) in whole minutes, early takes counting as 0, kept as a
+ * histogram: percentiles are reported as the upper bound of their bucket.
+ */
+@Service
+public class AdherenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdherenceService.class);
+
+    /** Lower bounds (minutes) of latency buckets 1..n; bucket 0 is "within 5 minutes". */
+    public static final int[] LATENCY_BUCKET_BOUNDS = {5, 15, 30, 60, 120, 240, 480, 1440};
+
+    private static final int BUCKET_COUNT = LATENCY_BUCKET_BOUNDS.length + 1;
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPSERT_SQL = """
+            insert into adherence_daily
+                   (user_id, dose_id, medication_id, day, taken_count, missed_count,
+                    latency_minutes_sum, latency_buckets, updated_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            on conflict on constraint uk_adherence_daily_user_dose_day do update
+               set taken_count = adherence_daily.taken_count + excluded.taken_count,
+                   missed_count = adherence_daily.missed_count + excluded.missed_count,
+                   latency_minutes_sum = adherence_daily.latency_minutes_sum + excluded.latency_minutes_sum,
+                   latency_buckets = array(
+                           select a + b
+                             from unnest(adherence_daily.latency_buckets, excluded.latency_buckets)
+                                  with ordinality as t(a, b, i)
+                            order by i),
+                   updated_at = excluded.updated_at
+            """;
+
+    private final AdherenceDailyRepository rollupRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    public AdherenceService(
+            AdherenceDailyRepository rollupRepo,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager txManager
+    ) {
+        this.rollupRepo = rollupRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /** Add terminal outcomes to the rollups. Must share the transaction that changed the statuses. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<TerminalOutcome> outcomes) {
+        if (outcomes == null || outcomes.isEmpty()) return;
+
+        // Pre-aggregate: one upsert per (user, dose, day) whatever the batch size
+        Map<RollupKey, Increment> increments = new TreeMap<>();
+        for (TerminalOutcome o : outcomes) {
+            if (o.status() != OccurrenceStatus.TAKEN && o.status() != OccurrenceStatus.MISSED) continue;
+
+            RollupKey key = new RollupKey(o.userId(), o.doseId(), o.scheduledAt().toLocalDate());
+            Increment inc = increments.computeIfAbsent(key, k -> new Increment(o.medicationId()));
+            if (o.status() == OccurrenceStatus.TAKEN) {
+                int minutes = latencyMinutes(o.scheduledAt(), o.takenAt());
+                inc.taken++;
+                inc.latencySum += minutes;
+                inc.buckets[bucketOf(minutes)]++;
+            } else {
+                inc.missed++;
+            }
+        }
+        if (increments.isEmpty()) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Map.Entry<RollupKey, Increment>> rows = new ArrayList<>(increments.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, BATCH_SIZE, (ps, e) -> {
+            RollupKey k = e.getKey();
+            Increment inc = e.getValue();
+            ps.setLong(1, k.userId());
+            ps.setLong(2, k.doseId());
+            ps.setObject(3, inc.medicationId);
+            ps.setObject(4, k.day());
+            ps.setInt(5, inc.taken);
+            ps.setInt(6, inc.missed);
+            ps.setLong(7, inc.latencySum);
+            Array buckets = ps.getConnection().createArrayOf("integer", Arrays.stream(inc.buckets).boxed().toArray());
+            ps.setArray(8, buckets);
+            ps.setObject(9, now);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public AdherenceDtos.Report report(
+            Long userId,
+            LocalDate fromDay,
+            LocalDate toDay,
+            AdherenceGranularity granularity,
+            AdherenceGroupBy groupBy
+    ) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (fromDay == null || toDay == null) throw new IllegalArgumentException("from/to are required");
+        if (toDay.isBefore(fromDay)) throw new IllegalArgumentException("to must not be before from");
+
+        AdherenceGranularity g = (granularity == null) ? AdherenceGranularity.DAY : granularity;
+        AdherenceGroupBy by = (groupBy == null) ? AdherenceGroupBy.USER : groupBy;
+
+        // Group key → day → merged rollup of that group's doses
+        Map<Long, TreeMap<LocalDate, Increment>> groups = new LinkedHashMap<>();
+        for (AdherenceDaily r : rollupRepo.findForUser(userId, fromDay, toDay)) {
+            Long key = switch (by) {
+                case USER -> userId;
+                case DOSE -> r.getDoseId();
+                case MEDICATION -> r.getMedicationId();
+            };
+            Increment day = groups.computeIfAbsent(key, k -> new TreeMap<>())
+                    .computeIfAbsent(r.getDay(), d -> new Increment(r.getMedicationId()));
+            day.add(r);
+        }
+
+        List<AdherenceDtos.Series> series = new ArrayList<>();
+        for (var e : groups.entrySet()) {
+            series.add(toSeries(e.getKey(), e.getValue(), g));
+        }
+        return new AdherenceDtos.Report(fromDay, toDay, g, by, series);
+    }
+
+    /** First start with the rollup table: build it from the existing (hot + archived) history. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepo.anyRollups()) return;
+
+        Integer rows = tx.execute(status -> jdbcTemplate.update(backfillSql()));
+        if (rows != null && rows > 0) logger.info("Adherence rollups backfilled: {} (dose, day) row(s)", rows);
+    }
+
+    private AdherenceDtos.Series toSeries(Long key, TreeMap<LocalDate, Increment> days, AdherenceGranularity g) {
+        Map<LocalDate, Increment> periods = new TreeMap<>();
+        Increment total = new Increment(null);
+
+        int run = 0;
+        int longest = 0;
+        for (var e : days.entrySet()) {
+            Increment day = e.getValue();
+            total.merge(day);
+            periods.computeIfAbsent(periodStart(e.getKey(), g), p -> new Increment(null)).merge(day);
+
+            // A streak day has outcomes and no miss; days without outcomes neither extend nor break it
+            if (day.taken + day.missed == 0) continue;
+            run = (day.missed == 0) ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+
+        List<AdherenceDtos.Period> out = new ArrayList<>(periods.size());
+        periods.forEach((start, p) -> out.add(new AdherenceDtos.Period(start, p.taken, p.missed, rate(p))));
+
+        AdherenceDtos.Summary summary = new AdherenceDtos.Summary(
+                total.taken,
+                total.missed,
+                rate(total),
+                total.taken == 0 ? null : (double) total.latencySum / total.taken,
+                percentile(total.buckets, total.taken, 0.50),
+                percentile(total.buckets, total.taken, 0.90),
+                run,
+                longest
+        );
+        return new AdherenceDtos.Series(key, summary, out);
+    }
+
+    private static LocalDate periodStart(LocalDate day, AdherenceGranularity g) {
+        return switch (g) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static Double rate(Increment i) {
+        int due = i.taken + i.missed;
+        return due == 0 ? null : (double) i.taken / due;
+    }
+
+    // Upper bound (minutes) of the bucket holding the p-th take; null past the last bound
+    static Integer percentile(int[] buckets, int count, double p) {
+        if (count == 0) return null;
+
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return i < LATENCY_BUCKET_BOUNDS.length ? LATENCY_BUCKET_BOUNDS[i] : null;
+        }
+        return null;
+    }
+
+    static int latencyMinutes(LocalDateTime scheduledAt, LocalDateTime takenAt) {
+        if (scheduledAt == null || takenAt == null) return 0;
+        long minutes = Duration.between(scheduledAt, takenAt).toMinutes();
+        return (int) Math.max(0, Math.min(minutes, Integer.MAX_VALUE));
+    }
+
+    // Same as SQL width_bucket(minutes, LATENCY_BUCKET_BOUNDS)
+    static int bucketOf(int minutes) {
+        int i = 0;
+        while (i < LATENCY_BUCKET_BOUNDS.length && minutes >= LATENCY_BUCKET_BOUNDS[i]) i++;
+        return i;
+    }
+
+    private static String backfillSql() {
+        String bounds = Arrays.stream(LATENCY_BUCKET_BOUNDS).mapToObj(String::valueOf)
+                .collect(Collectors.joining(", ", "array[", "]"));
+
+        StringBuilder buckets = new StringBuilder();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (i > 0) buckets.append(", ");
+            buckets.append("count(*) filter (where h.status = 'TAKEN' and width_bucket(h.latency, ")
+                    .append(bounds).append(") = ").append(i).append(")");
+        }
+
+        String latency = "coalesce(greatest(0, floor(extract(epoch from (%1$s.taken_at - %1$s.scheduled_at)) / 60)), 0)::int";
+
+        return """
+                insert into adherence_daily
+                       (user_id, dose_id, medication_id, day, taken_count, missed_count,
+                        latency_minutes_sum, latency_buckets, updated_at)
+                select h.user_id, h.dose_id, max(d.medication_id), h.scheduled_at::date,
+                       count(*) filter (where h.status = 'TAKEN'),
+                       count(*) filter (where h.status = 'MISSED'),
+                       coalesce(sum(h.latency) filter (where h.status = 'TAKEN'), 0),
+                       array[%s]::integer[],
+                       now()
+                  from (select d.user_id, o.dose_id, o.scheduled_at, o.status, %s as latency
+                          from dose_occurrence o
+                          join dose d on d.id = o.dose_id
+                         where o.status in ('TAKEN', 'MISSED')
+                        union all
+                        select a.user_id, a.dose_id, a.scheduled_at, a.status, %s
+                          from dose_occurrence_archive a
+                         where a.status in ('TAKEN', 'MISSED')) h
+                  left join dose d on d.id = h.dose_id
+                 group by h.user_id, h.dose_id, h.scheduled_at::date
+                on conflict on constraint uk_adherence_daily_user_dose_day do nothing
+                """.formatted(buckets, latency.formatted("o"), latency.formatted("a"));
+    }
+
+    /** One occurrence that just became TAKEN or MISSED (wall times of the user). */
+    public record TerminalOutcome(
+            Long userId,
+            Long doseId,
+            Long medicationId,
+            LocalDateTime scheduledAt,
+            OccurrenceStatus status,
+            LocalDateTime takenAt
+    ) {}
+
+    private record RollupKey(Long userId, Long doseId, LocalDate day) implements Comparable<RollupKey> {
+        // Upserts in key order: concurrent writers lock rollup rows in the same order
+        @Override
+        public int compareTo(RollupKey o) {
+            int c = userId.compareTo(o.userId);
+            if (c == 0) c = doseId.compareTo(o.doseId);
+            if (c == 0) c = day.compareTo(o.day);
+            return c;
+        }
+    }
+
+    private static final class Increment {
+        private final Long medicationId;
+        private final int[] buckets = new int[BUCKET_COUNT];
+        private int taken;
+        private int missed;
+        private long latencySum;
+
+        private Increment(Long medicationId) {
+            this.medicationId = medicationId;
+        }
+
+        private void add(AdherenceDaily r) {
+            taken += r.getTakenCount();
+            missed += r.getMissedCount();
+            latencySum += r.getLatencyMinutesSum();
+            int[] rb = r.getLatencyBuckets();
+            if (rb != null) {
+                for (int i = 0; i < Math.min(rb.length, BUCKET_COUNT); i++) buckets[i] += rb[i];
+            }
+        }
+
+        private void merge(Increment o) {
+            taken += o.taken;
+            missed += o.missed;
+            latencySum += o.latencySum;
+            for (int i = 0; i < BUCKET_COUNT; i++) buckets[i] += o.buckets[i];
+        }
+    }
+}
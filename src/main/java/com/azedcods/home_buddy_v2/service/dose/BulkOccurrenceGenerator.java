@@ -0,0 +1,262 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.exception.CapacityExceededException;
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.repository.dose.DoseOccurrenceRepository;
+import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.repository.dose.DoseScheduleKey;
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceSlot;
+import com.azedcods.home_buddy_v2.service.dispenser.DispenserService;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceBatchWriter.NewOccurrence;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Set-based, rolling-horizon occurrence generation for many users at once (nightly job).
+ *
+ * Every dose carries a "materialized through" watermark: occurrences exist up to it.
+ * A run only expands each dose's missing tail (watermark, to], so a nightly run touches
+ * about one new day per dose whatever the horizon length.
+ *
+ * - {@link #loadPartition}: dose keys + watermarks (compiled schedules from the cache), and the
+ *   existing occurrences / day-load counters of the tail range only
+ * - {@link #generateForUser}: share-locks the user's doses and drops those edited since the snapshot,
+ *   plans the remaining tails in memory, enforcing the per-day capacity rule, writes them through
+ *   {@link OccurrenceBatchWriter}, then advances the watermarks
+ *
+ * Inserts are idempotent, so a retried or concurrent run never duplicates rows. Day-load counters
+ * are reserved before the insert (conditional, so a concurrent writer can't oversubscribe a day).
+ * Transactions are owned by the caller (one per user).
+ */
+@Service
+public class BulkOccurrenceGenerator {
+
+    private static final int WATERMARK_BATCH_SIZE = 1000;
+
+    // The dispenser holds day-of-month compartments: only the near window is loaded into it
+    private static final Duration DISPENSER_WINDOW = Duration.ofDays(8);
+
+    // Share-locks the doses being written: an edit waits for this transaction, or already committed a new version
+    private static final String LOCK_VERSIONS_SQL = """
+            select id, schedule_version
+              from dose
+             where id = any(?)
+             order by id
+               for share
+            """;
+
+    // Forward only; the version check repeats the one made under the lock
+    private static final String ADVANCE_WATERMARK_SQL = """
+            update dose
+               set materialized_through = ?
+             where id = ?
+               and schedule_version = ?
+               and (materialized_through is null or materialized_through < ?)
+            """;
+
+    private final DoseRepository doseRepo;
+    private final DoseScheduleResolver scheduleResolver;
+    private final DoseOccurrenceRepository occRepo;
+    private final OccurrenceDayLoadService dayLoadService;
+    private final OccurrenceBatchWriter batchWriter;
+    private final OccurrenceVersionService versionService;
+    private final UserZoneResolver zoneResolver;
+    private final DispenserService dispenserService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkOccurrenceGenerator(
+            DoseRepository doseRepo,
+            DoseScheduleResolver scheduleResolver,
+            DoseOccurrenceRepository occRepo,
+            OccurrenceDayLoadService dayLoadService,
+            OccurrenceBatchWriter batchWriter,
+            OccurrenceVersionService versionService,
+            UserZoneResolver zoneResolver,
+            DispenserService dispenserService,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.doseRepo = doseRepo;
+        this.scheduleResolver = scheduleResolver;
+        this.occRepo = occRepo;
+        this.dayLoadService = dayLoadService;
+        this.batchWriter = batchWriter;
+        this.versionService = versionService;
+        this.zoneResolver = zoneResolver;
+        this.dispenserService = dispenserService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(readOnly = true)
+    public PartitionSnapshot loadPartition(Collection<Long> userIds, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
+
+        Map<Long, List<DoseTail>> tailsByUser = new HashMap<>();
+        Map<Long, List<OccurrenceSlot>> slotsByUser = new HashMap<>();
+        Map<Long, Map<LocalDate, Integer>> loadsByUser = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return new PartitionSnapshot(from, to, tailsByUser, slotsByUser, loadsByUser);
+        }
+
+        List<DoseScheduleKey> keys = doseRepo.findScheduleKeysForUsers(userIds);
+        Map<Long, CompiledSchedule> compiled = scheduleResolver.resolve(keys);
+
+        // One query warms the partition's time zones (the writer converts wall times per user)
+        zoneResolver.zonesOf(userIds);
+
+        // Earliest tail start of the partition: existing rows are only needed from there on
+        LocalDateTime tailsFrom = null;
+        for (DoseScheduleKey k : keys) {
+            CompiledSchedule cs = compiled.get(k.getId());
+            if (cs == null) continue;
+
+            LocalDateTime tailFrom = tailStart(k.getMaterializedThrough(), from);
+            if (tailFrom.isAfter(to)) continue; // already materialized through the horizon
+
+            tailsByUser.computeIfAbsent(k.getUserId(), x -> new ArrayList<>()).add(new DoseTail(cs, tailFrom));
+            if (tailsFrom == null || tailFrom.isBefore(tailsFrom)) tailsFrom = tailFrom;
+        }
+
+        if (tailsFrom != null) {
+            for (OccurrenceSlot slot : occRepo.findSlotsForUsersInRange(tailsByUser.keySet(), tailsFrom, to)) {
+                slotsByUser.computeIfAbsent(slot.getUserId(), k -> new ArrayList<>()).add(slot);
+            }
+            loadsByUser = dayLoadService.loadsForUsers(tailsByUser.keySet(), tailsFrom.toLocalDate(), to.toLocalDate());
+        }
+
+        return new PartitionSnapshot(from, to, tailsByUser, slotsByUser, loadsByUser);
+    }
+
+    /**
+     * Generate one user's missing tails from a preloaded snapshot.
+     * Must run inside the caller's transaction.
+     *
+     * @return number of rows actually inserted
+     * @throws CapacityExceededException with the capacity report if the user would exceed the per-day limit
+     */
+    public int generateForUser(PartitionSnapshot snapshot, Long userId, String robotId) {
+        List<DoseTail> tails = currentTails(snapshot.tailsByUser().getOrDefault(userId, List.of()));
+
+        int inserted = 0;
+        if (!tails.isEmpty()) {
+            OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner();
+            snapshot.loadsByUser().getOrDefault(userId, Map.of()).forEach(planner::countExisting);
+
+            List<NewOccurrence> rows = planUser(
+                    tails,
+                    snapshot.slotsByUser().getOrDefault(userId, List.of()),
+                    snapshot.to(),
+                    planner
+            );
+
+            if (planner.hasViolations()) {
+                throw new CapacityExceededException(planner.buildViolationReport());
+            }
+
+            dayLoadService.reserve(userId, planner.getAcceptedDateCounts(), planner.getMaxPerDay());
+            inserted = batchWriter.insertScheduled(userId, rows);
+            advanceWatermarks(tails, snapshot.to());
+            if (inserted > 0) versionService.bump(userId);
+        }
+
+        // Dispenser compartments are keyed by day-of-month: sync the near window only, from the counters
+        if (robotId != null) {
+            LocalDateTime dispenserTo = snapshot.from().plus(DISPENSER_WINDOW);
+            Map<LocalDate, Integer> loads =
+                    dayLoadService.loadsFor(userId, snapshot.from().toLocalDate(), dispenserTo.toLocalDate());
+
+            Map<Integer, Integer> pillsByDay = new HashMap<>();
+            loads.forEach((day, count) -> pillsByDay.merge(day.getDayOfMonth(), count, Integer::sum));
+            dispenserService.applyDayLoad(robotId, pillsByDay);
+        }
+
+        return inserted;
+    }
+
+    /**
+     * Tails whose dose still has the rule version the snapshot compiled, locked until the caller commits.
+     * A dose edited since the snapshot is skipped: its rows would follow the old rules, past what the edit
+     * reconciled. The next run picks it up with the new rules.
+     */
+    private List<DoseTail> currentTails(List<DoseTail> tails) {
+        if (tails.isEmpty()) return tails;
+
+        Long[] ids = tails.stream().map(t -> t.schedule().getDoseId()).toArray(Long[]::new);
+        Map<Long, Long> versions = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(LOCK_VERSIONS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (RowCallbackHandler) rs -> versions.put(rs.getLong(1), rs.getLong(2)));
+
+        List<DoseTail> current = new ArrayList<>(tails.size());
+        for (DoseTail tail : tails) {
+            Long version = versions.get(tail.schedule().getDoseId());
+            if (version != null && version == tail.schedule().getVersion()) current.add(tail);
+        }
+        return current;
+    }
+
+    private List<NewOccurrence> planUser(
+            List<DoseTail> tails,
+            List<OccurrenceSlot> existing,
+            LocalDateTime to,
+            OccurrenceCapacityPlanner planner
+    ) {
+        // Existing rows are already in the day-load counters: only needed to skip their instants
+        Map<Long, Set<LocalDateTime>> existingByDose = new HashMap<>();
+        for (OccurrenceSlot slot : existing) {
+            existingByDose.computeIfAbsent(slot.getDoseId(), k -> new HashSet<>()).add(slot.getScheduledAt());
+        }
+
+        List<NewOccurrence> rows = new ArrayList<>();
+
+        for (DoseTail tail : tails) {
+            Long doseId = tail.schedule().getDoseId();
+            Set<LocalDateTime> existingTimes = existingByDose.getOrDefault(doseId, Set.of());
+
+            Iterator<LocalDateTime> schedule = tail.schedule().iterate(tail.from(), to);
+            while (schedule.hasNext()) {
+                LocalDateTime at = schedule.next();
+                if (existingTimes.contains(at)) continue;
+                if (!planner.tryAccept(doseId, at)) continue;
+
+                rows.add(new NewOccurrence(doseId, at));
+            }
+        }
+        return rows;
+    }
+
+    private void advanceWatermarks(List<DoseTail> tails, LocalDateTime through) {
+        jdbcTemplate.batchUpdate(ADVANCE_WATERMARK_SQL, tails, WATERMARK_BATCH_SIZE, (ps, tail) -> {
+            ps.setObject(1, through);
+            ps.setLong(2, tail.schedule().getDoseId());
+            ps.setLong(3, tail.schedule().getVersion());
+            ps.setObject(4, through);
+        });
+    }
+
+    // First instant not yet materialized (never before the run's floor)
+    private static LocalDateTime tailStart(LocalDateTime materializedThrough, LocalDateTime floor) {
+        if (materializedThrough == null || materializedThrough.isBefore(floor)) return floor;
+        return materializedThrough.plusNanos(1);
+    }
+
+    /** One dose's compiled rules and the first instant of its missing tail. */
+    public record DoseTail(CompiledSchedule schedule, LocalDateTime from) {}
+
+    /** Read-once view of a user partition; safe to share across the partition's per-user transactions. */
+    public record PartitionSnapshot(
+            LocalDateTime from,
+            LocalDateTime to,
+            Map<Long, List<DoseTail>> tailsByUser,
+            Map<Long, List<OccurrenceSlot>> slotsByUser,
+            Map<Long, Map<LocalDate, Integer>> loadsByUser
+    ) {}
+}
@@ -4,27 +4,35 @@ import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
 import com.azedcods.home_buddy_v2.enums.NotificationRule;
 import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
 import com.azedcods.home_buddy_v2.enums.NotificationType;
+import com.azedcods.home_buddy_v2.exception.CapacityExceededException;
 import com.azedcods.home_buddy_v2.model.dose.Dose;
 import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
 import com.azedcods.home_buddy_v2.model.dose.ScheduleEngine;
+import com.azedcods.home_buddy_v2.model.dose.ZonedDayOffsets;
+import com.azedcods.home_buddy_v2.payload.DoseOccurrenceDtos;
 import com.azedcods.home_buddy_v2.repository.dose.DoseOccurrenceRepository;
 import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceHistoryRow;
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceSlot;
 import com.azedcods.home_buddy_v2.service.dispenser.DispenserService;
 import com.azedcods.home_buddy_v2.service.notification.NotificationEngine;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 public class DoseOccurrenceService {
 
-    private static final int MAX_OCCURRENCES_PER_DAY = 7;
+    private static final int MAX_OCCURRENCES_PER_DAY = OccurrenceCapacityPlanner.MAX_OCCURRENCES_PER_DAY;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
 
 
     private final DoseRepository doseRepo;
@@ -32,210 +40,243 @@ public class DoseOccurrenceService {
     private final ScheduleEngine scheduleEngine;
     private final DispenserService dispenserService;
     private final NotificationEngine notificationEngine;
+    private final OccurrenceTransitionScheduler transitionScheduler;
+    private final OccurrenceDayLoadService dayLoadService;
+    private final OccurrenceVersionService versionService;
+    private final UserZoneResolver zoneResolver;
+    private final AdherenceService adherenceService;
 
     public DoseOccurrenceService(
             DoseRepository doseRepo,
             DoseOccurrenceRepository occRepo,
             ScheduleEngine scheduleEngine,
             DispenserService dispenserService,
-            NotificationEngine notificationEngine
+            NotificationEngine notificationEngine,
+            OccurrenceTransitionScheduler transitionScheduler,
+            OccurrenceDayLoadService dayLoadService,
+            OccurrenceVersionService versionService,
+            UserZoneResolver zoneResolver,
+            AdherenceService adherenceService
     ) {
         this.doseRepo = doseRepo;
         this.occRepo = occRepo;
         this.scheduleEngine = scheduleEngine;
         this.dispenserService = dispenserService;
         this.notificationEngine = notificationEngine;
+        this.transitionScheduler = transitionScheduler;
+        this.dayLoadService = dayLoadService;
+        this.versionService = versionService;
+        this.zoneResolver = zoneResolver;
+        this.adherenceService = adherenceService;
     }
 
-    @Transactional
+    /**
+     * Pure read: no status sweep, read-only transaction (replica / cache friendly).
+     * Callers map {@link DoseOccurrence#effectiveStatus} so the status is still current.
+     */
+    @Transactional(readOnly = true)
     public List<DoseOccurrence> listWindowForUser(Long userId, LocalDateTime from, LocalDateTime to) {
         if (userId == null) throw new IllegalArgumentException("userId is required");
         if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
 
-        refreshDueAndMissed(LocalDateTime.now());
-
         return occRepo.findByDose_User_UserIdAndScheduledAtBetweenOrderByScheduledAtAsc(userId, from, to);
     }
 
-    public DoseOccurrence get(Long id) {
-        return occRepo.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Occurrence not found: " + id));
-    }
-
-    @Transactional
-    public List<DoseOccurrence> generateWindowForUser(Long userId, LocalDateTime from, LocalDateTime to) {
+    /**
+     * Keyset page of a user's window, ordered by (scheduledAt, id).
+     *
+     * @param cursor opaque token from the previous page ({@code null} for the first page)
+     * @param limit  page size, clamped to [1, MAX_PAGE_SIZE]
+     */
+    @Transactional(readOnly = true)
+    public WindowPage listWindowPageForUser(Long userId, LocalDateTime from, LocalDateTime to, String cursor, Integer limit) {
         if (userId == null) throw new IllegalArgumentException("userId is required");
         if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
 
-        // ✅ Load existing occurrences once (whole window)
-        List<DoseOccurrence> existingOcc =
-                occRepo.findByDose_User_UserIdAndScheduledAtBetweenOrderByScheduledAtAsc(userId, from, to);
-
-        // ✅ date -> count (use LocalDate, not dayOfMonth; avoids cross-month collisions)
-        Map<java.time.LocalDate, Integer> dateCount = new java.util.HashMap<>();
-        for (DoseOccurrence o : existingOcc) {
-            if (o.getScheduledAt() == null) continue;
-            dateCount.merge(o.getScheduledAt().toLocalDate(), 1, Integer::sum);
-        }
-
-        List<Dose> doses = doseRepo.findByUser_UserId(userId);
-
-        // ✅ We validate ALL first, collect violations, and only save if valid
-        List<DoseOccurrence> toCreateAll = new java.util.ArrayList<>();
-        List<CapacityViolation> violations = new java.util.ArrayList<>();
+        int size = (limit == null) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
 
-        for (Dose d : doses) {
-            List<LocalDateTime> scheduled = scheduleEngine.computeSchedule(d, from, to);
+        // First page: everything at or after "from"
+        OccurrenceCursor after = (cursor == null || cursor.isBlank())
+                ? new OccurrenceCursor(from, Long.MIN_VALUE)
+                : OccurrenceCursor.decode(cursor);
 
-            var existingTimesForDose = new java.util.HashSet<>(
-                    occRepo.findExistingTimesForDoseInRange(d.getId(), from, to)
-            );
+        // One extra row tells us whether there is a next page
+        List<DoseOccurrence> rows = occRepo.findWindowPage(
+                userId, from, to, after.scheduledAt(), after.id(), Limit.of(size + 1));
 
-            for (LocalDateTime at : scheduled) {
-                if (existingTimesForDose.contains(at)) continue;
+        if (rows.size() <= size) return new WindowPage(rows, null);
 
-                java.time.LocalDate date = at.toLocalDate();
-                int current = dateCount.getOrDefault(date, 0);
-
-                if (current >= MAX_OCCURRENCES_PER_DAY) {
-                    violations.add(new CapacityViolation(at, d.getId(), current));
-                    continue;
-                }
+        List<DoseOccurrence> page = rows.subList(0, size);
+        DoseOccurrence last = page.get(size - 1);
+        return new WindowPage(page, new OccurrenceCursor(last.getScheduledAt(), last.getId()).encode());
+    }
 
-                // Tentatively accept + increment in-memory
-                dateCount.put(date, current + 1);
+    /** Current version of the user's occurrences (ETag source); no occurrence row is read. */
+    @Transactional(readOnly = true)
+    public long windowVersion(Long userId) {
+        return versionService.current(userId);
+    }
 
-                toCreateAll.add(DoseOccurrence.builder()
-                        .dose(d)
-                        .scheduledAt(at)
-                        .status(OccurrenceStatus.SCHEDULED)
-                        .build());
-            }
-        }
+    public record WindowPage(List<DoseOccurrence> items, String nextCursor) {}
 
-        // ✅ STRICT: if anything violates capacity, we throw a detailed report
-        if (!violations.isEmpty()) {
-            // Group violations by date for a cleaner message
-            Map<java.time.LocalDate, List<CapacityViolation>> byDate = new java.util.LinkedHashMap<>();
-            for (CapacityViolation v : violations) {
-                byDate.computeIfAbsent(v.at.toLocalDate(), k -> new java.util.ArrayList<>()).add(v);
-            }
+    /** Hot rows and archived history in one list, newest first. */
+    @Transactional(readOnly = true)
+    public List<OccurrenceHistoryRow> historyForUser(Long userId, LocalDateTime from, LocalDateTime to) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("Cannot generate occurrences: dispenser capacity is ")
-                    .append(MAX_OCCURRENCES_PER_DAY)
-                    .append(" per day.\n\n");
+        return occRepo.findHistoryForUser(userId, from, to);
+    }
 
-            int shown = 0;
-            int MAX_LINES = 25; // prevent insane error messages
+    public DoseOccurrence get(Long id) {
+        return occRepo.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Occurrence not found: " + id));
+    }
 
-            for (var entry : byDate.entrySet()) {
-                java.time.LocalDate date = entry.getKey();
-                List<CapacityViolation> items = entry.getValue();
+    // Read after the row lock: the status seen is the committed one, and stays so until this transaction ends
+    private DoseOccurrence getForUpdate(Long id) {
+        occRepo.lockByIds(List.of(id));
+        return get(id);
+    }
 
-                // the first violation’s existingCount reflects "already full"
-                int existing = items.get(0).existingCount;
+    @Transactional
+    public List<DoseOccurrence> generateWindowForUser(Long userId, LocalDateTime from, LocalDateTime to) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
 
-                sb.append("• ").append(date)
-                        .append(" already has ").append(existing)
-                        .append(" scheduled occurrence(s). Attempted to add ")
-                        .append(items.size()).append(" more.\n");
+        // ✅ Seed capacity from the per-day counters (one row per day, no window load)
+        OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner(MAX_OCCURRENCES_PER_DAY);
+        dayLoadService.loadsFor(userId, from.toLocalDate(), to.toLocalDate()).forEach(planner::countExisting);
 
-                for (CapacityViolation v : items) {
-                    if (shown >= MAX_LINES) break;
-                    sb.append("   - doseId=").append(v.doseId)
-                            .append(" at ").append(String.format("%02d:%02d", v.at.getHour(), v.at.getMinute()))
-                            .append("\n");
-                    shown++;
-                }
+        List<Dose> doses = doseRepo.findByUser_UserId(userId);
+        ZonedDayOffsets zone = zoneResolver.offsetsFor(zoneResolver.zoneOf(userId));
 
-                if (shown >= MAX_LINES) {
-                    sb.append("\n(Only first ").append(MAX_LINES).append(" overflow items shown.)\n");
-                    break;
-                }
-            }
+        // Existing (dose, time) pairs of the window in one query, only to skip their instants
+        Map<Long, Set<LocalDateTime>> existingByDose = new HashMap<>();
+        for (OccurrenceSlot slot : occRepo.findSlotsForUsersInRange(List.of(userId), from, to)) {
+            existingByDose.computeIfAbsent(slot.getDoseId(), k -> new HashSet<>()).add(slot.getScheduledAt());
+        }
 
-            sb.append("\nFix: reduce daily frequency / remove overlapping doses / adjust schedule rules.");
+        // ✅ We validate ALL first, collect violations, and only save if valid
+        List<DoseOccurrence> toCreateAll = new ArrayList<>();
+
+        // Every dose merged in time order, expanded lazily: days fill up chronologically
+        Iterator<ScheduleEngine.ScheduledDose> merged = scheduleEngine.streamMerged(doses, from, to).iterator();
+        while (merged.hasNext()) {
+            ScheduleEngine.ScheduledDose next = merged.next();
+            Dose d = next.dose();
+            LocalDateTime at = next.at();
+
+            if (existingByDose.getOrDefault(d.getId(), Set.of()).contains(at)) continue;
+
+            // Tentatively accept + increment in-memory
+            if (!planner.tryAccept(d.getId(), at)) continue;
+
+            toCreateAll.add(DoseOccurrence.builder()
+                    .dose(d)
+                    .scheduledAt(at)
+                    .scheduledInstant(zone.toInstant(at))
+                    .status(OccurrenceStatus.SCHEDULED)
+                    .build());
+        }
 
-            throw new IllegalStateException(sb.toString());
+        // ✅ STRICT: if anything violates capacity, we throw a detailed report
+        if (planner.hasViolations()) {
+            throw new CapacityExceededException(planner.buildViolationReport());
         }
 
         // ✅ Save only if valid
         if (!toCreateAll.isEmpty()) {
+            // Conditional increments: a concurrent request can't oversubscribe a day (throws + rolls back)
+            dayLoadService.reserve(userId, planner.getAcceptedDateCounts(), MAX_OCCURRENCES_PER_DAY);
             occRepo.saveAll(toCreateAll);
+            for (DoseOccurrence o : toCreateAll) {
+                transitionScheduler.track(o.getId(), o.getScheduledInstant(), o.getStatus());
+            }
+            versionService.bump(userId);
         }
 
-        refreshDueAndMissed(LocalDateTime.now());
+        advanceWatermarks(doses, from, to, userNow(userId));
 
-        // ✅ Keep your dispenser sync (idempotent and now guaranteed consistent)
-        syncDispenserForUserWindow(userId, from, to);
+        // ✅ Dispenser sync from the counts we already hold (no window reload)
+        String robotId = dispenserService.resolveRobotIdForUser(userId);
+        if (robotId != null) {
+            dispenserService.applyDayLoad(robotId, planner.getDayOfMonthCounts());
+        }
 
         return occRepo.findByDose_User_UserIdAndScheduledAtBetweenOrderByScheduledAtAsc(userId, from, to);
     }
 
 
 
-    private void syncDispenserForUserWindow(Long userId, LocalDateTime from, LocalDateTime to) {
-        String robotId = dispenserService.resolveRobotIdForUser(userId);
-        if (robotId == null) return;
-
-        List<DoseOccurrence> occurrences =
-                occRepo.findByDose_User_UserIdAndScheduledAtBetweenOrderByScheduledAtAsc(userId, from, to);
+    /**
+     * Every instant of [from, to] now exists for these doses: move their watermarks to {@code to}, so a later
+     * rule edit reconciles these rows. Only when the window joins the materialized range (no gap is skipped).
+     */
+    private void advanceWatermarks(List<Dose> doses, LocalDateTime from, LocalDateTime to, LocalDateTime now) {
+        for (Dose d : doses) {
+            LocalDateTime through = d.getMaterializedThrough();
+            boolean contiguous = (through == null) ? !from.isAfter(now) : !from.isAfter(through.plusNanos(1));
+            if (!contiguous || (through != null && !through.isBefore(to))) continue;
 
-        Map<Integer, Integer> pillsByDay = new HashMap<>();
-        for (DoseOccurrence o : occurrences) {
-            if (o.getScheduledAt() == null) continue;
-            pillsByDay.merge(o.getScheduledAt().getDayOfMonth(), 1, Integer::sum);
+            doseRepo.advanceMaterializedThrough(d.getId(), d.getScheduleVersion(), to);
         }
-
-        dispenserService.applyDayLoad(robotId, pillsByDay);
     }
 
-    @Transactional
-    public void refreshDueAndMissed(LocalDateTime now) {
-        if (now == null) now = LocalDateTime.now();
-
-        occRepo.bumpScheduledToDue(now, "[AUTO] Status → DUE at " + now);
-        occRepo.bumpDueToMissed(now.minusHours(24), "[AUTO] Status → MISSED at " + now);
-    }
-
-    private void assertUpdatableNow(DoseOccurrence o, LocalDateTime now) {
-        if (now == null) now = LocalDateTime.now();
+    // Status rules use the clock-derived status: the persisted one may lag until the transition scheduler flips it
+    private void assertUpdatableNow(DoseOccurrence o, Instant now) {
+        if (now == null) now = Instant.now();
 
-        if (o.getScheduledAt() == null) throw new IllegalStateException("Occurrence scheduledAt is null");
+        Instant dueAt = DoseOccurrence.dueAt(o.getScheduledInstant(), o.getScheduledAt());
+        if (dueAt == null) throw new IllegalStateException("Occurrence scheduledAt is null");
 
-        if (o.getScheduledAt().isAfter(now)) {
+        if (dueAt.isAfter(now)) {
             throw new IllegalArgumentException("Cannot update a future occurrence.");
         }
 
-        if (o.getScheduledAt().isBefore(now.minusHours(24))) {
+        if (dueAt.isBefore(now.minus(DoseOccurrence.MISSED_AFTER))) {
             throw new IllegalArgumentException("Occurrence is locked (more than 24h overdue).");
         }
 
-        if (o.getStatus() == OccurrenceStatus.MISSED) {
+        OccurrenceStatus current = o.effectiveStatus(now);
+
+        if (current == OccurrenceStatus.MISSED) {
             throw new IllegalArgumentException("Occurrence already MISSED and locked.");
         }
 
         // ✅ NEW: prevent double-taken (prevents double dispense)
-        if (o.getStatus() == OccurrenceStatus.TAKEN) {
+        if (current == OccurrenceStatus.TAKEN) {
             throw new IllegalArgumentException("Occurrence already TAKEN and locked.");
         }
+
+        assertNotClosed(o, OccurrenceStatus.TAKEN);
+    }
+
+    // TAKEN / MISSED / SKIPPED are final: adherence rollups only ever add, so an outcome is never taken back
+    private static void assertNotClosed(DoseOccurrence o, OccurrenceStatus target) {
+        OccurrenceStatus current = o.getStatus();
+        boolean closed = current == OccurrenceStatus.TAKEN || current == OccurrenceStatus.MISSED
+                || current == OccurrenceStatus.SKIPPED;
+        if (closed && current != target) {
+            throw new IllegalArgumentException("Occurrence already " + current + " and locked.");
+        }
     }
 
     @Transactional
     public DoseOccurrence markTaken(Long occurrenceId, LocalDateTime takenAt, String note) {
-        LocalDateTime now = LocalDateTime.now();
+        Instant nowInstant = Instant.now();
 
-        refreshDueAndMissed(now);
+        DoseOccurrence o = getForUpdate(occurrenceId);
+        assertUpdatableNow(o, nowInstant);
 
-        DoseOccurrence o = get(occurrenceId);
-        assertUpdatableNow(o, now);
+        Long userId = o.getDose().getUser().getUserId();
 
         o.setStatus(OccurrenceStatus.TAKEN);
-        o.setTakenAt(takenAt != null ? takenAt : now);
+        o.setTakenAt(takenAt != null ? takenAt : userNow(userId)); // same wall clock as scheduledAt
         if (note != null && !note.isBlank()) o.setNote(note.trim());
 
-        Long userId = o.getDose().getUser().getUserId();
+        versionService.bump(userId);
+        adherenceService.record(List.of(outcomeOf(o)));
 
         // ✅ NEW: dispense 1 pill from the scheduled day compartment
         String robotId = dispenserService.resolveRobotIdForUser(userId);
@@ -265,31 +306,32 @@ public class DoseOccurrenceService {
             throw new IllegalArgumentException("Only TAKEN or MISSED are allowed.");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-        refreshDueAndMissed(now);
+        Instant nowInstant = Instant.now();
 
-        DoseOccurrence o = get(occurrenceId);
+        DoseOccurrence o = getForUpdate(occurrenceId);
+        OccurrenceStatus previous = o.getStatus();
 
         // If setting TAKEN, enforce the “no double-dispense” lock
         if (status == OccurrenceStatus.TAKEN) {
-            assertUpdatableNow(o, now);
+            assertUpdatableNow(o, nowInstant);
         } else {
-            // MISSED also should not flip a TAKEN back
-            if (o.getStatus() == OccurrenceStatus.TAKEN) {
-                throw new IllegalArgumentException("Occurrence already TAKEN and locked.");
-            }
+            // MISSED also should not flip a TAKEN (or SKIPPED) back
+            assertNotClosed(o, status);
         }
 
         o.setStatus(status);
         if (note != null && !note.isBlank()) o.setNote(note.trim());
 
+        Long userId = o.getDose().getUser().getUserId();
+
         if (status != OccurrenceStatus.TAKEN) {
             o.setTakenAt(null);
         } else if (o.getTakenAt() == null) {
-            o.setTakenAt(now);
+            o.setTakenAt(userNow(userId));
         }
 
-        Long userId = o.getDose().getUser().getUserId();
+        versionService.bump(userId);
+        if (previous != status) adherenceService.record(List.of(outcomeOf(o)));
 
         if (status == OccurrenceStatus.TAKEN) {
             String robotId = dispenserService.resolveRobotIdForUser(userId);
@@ -301,21 +343,140 @@ public class DoseOccurrenceService {
         return o;
     }
 
-    private static String fmt(LocalDateTime dt) {
-        if (dt == null) return "null";
-        return dt.toLocalDate() + " " + String.format("%02d:%02d", dt.getHour(), dt.getMinute());
+    /**
+     * Apply many TAKEN / MISSED transitions of one user in a single transaction.
+     *
+     * Same rules as {@link #markTaken} / {@link #setStatus} per item, but one robot
+     * lookup, one aggregated compartment decrement per day and one notification for the whole batch.
+     * Invalid items are reported and skipped; valid ones are still applied.
+     */
+    @Transactional
+    public List<BulkStatusResult> applyStatuses(Long userId, List<DoseOccurrenceDtos.BulkStatusItem> items) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (items == null || items.isEmpty()) return List.of();
+
+        LocalDateTime now = userNow(userId);
+        Instant nowInstant = Instant.now();
+
+        Set<Long> ids = new HashSet<>();
+        for (DoseOccurrenceDtos.BulkStatusItem item : items) ids.add(item.occurrenceId());
+
+        Map<Long, DoseOccurrence> byId = new HashMap<>();
+        occRepo.lockByIds(ids);
+        for (DoseOccurrence o : occRepo.findByIdIn(ids)) byId.put(o.getId(), o);
+
+        List<BulkStatusResult> results = new ArrayList<>(items.size());
+        Set<Long> handled = new HashSet<>();
+        Map<Integer, Integer> pillsByDay = new HashMap<>();
+        Map<Integer, List<Integer>> takenResultsByDay = new HashMap<>();
+        List<AdherenceService.TerminalOutcome> outcomes = new ArrayList<>();
+        int taken = 0;
+
+        for (DoseOccurrenceDtos.BulkStatusItem item : items) {
+            Long id = item.occurrenceId();
+            DoseOccurrence o = byId.get(id);
+
+            String error = null;
+            if (!handled.add(id)) error = "Duplicate occurrence in request.";
+            else if (o == null) error = "Occurrence not found: " + id;
+            else if (!Objects.equals(o.getDose().getUser().getUserId(), userId)) error = "Occurrence does not belong to user " + userId;
+            else if (item.status() != OccurrenceStatus.TAKEN && item.status() != OccurrenceStatus.MISSED) {
+                error = "Only TAKEN or MISSED are allowed.";
+            } else {
+                try {
+                    if (item.status() == OccurrenceStatus.TAKEN) assertUpdatableNow(o, nowInstant);
+                    else assertNotClosed(o, item.status());
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    error = e.getMessage();
+                }
+            }
+
+            if (error != null) {
+                results.add(new BulkStatusResult(id, null, error, null));
+                continue;
+            }
+
+            OccurrenceStatus previous = o.getStatus();
+            o.setStatus(item.status());
+            if (item.note() != null && !item.note().isBlank()) o.setNote(item.note().trim());
+
+            if (item.status() == OccurrenceStatus.TAKEN) {
+                o.setTakenAt(item.takenAt() != null ? item.takenAt() : now);
+                int day = o.getScheduledAt().getDayOfMonth();
+                pillsByDay.merge(day, 1, Integer::sum);
+                takenResultsByDay.computeIfAbsent(day, k -> new ArrayList<>()).add(results.size());
+                taken++;
+            } else {
+                o.setTakenAt(null);
+            }
+
+            if (previous != item.status()) outcomes.add(outcomeOf(o));
+            results.add(new BulkStatusResult(id, o, null, null));
+        }
+
+        if (results.stream().anyMatch(BulkStatusResult::applied)) versionService.bump(userId);
+        adherenceService.record(outcomes);
+
+        if (!pillsByDay.isEmpty()) {
+            String robotId = dispenserService.resolveRobotIdForUser(userId);
+            if (robotId != null) {
+                // A missing compartment is reported on its items; the status changes still apply
+                for (Integer day : dispenserService.dispenseForScheduledDays(robotId, pillsByDay)) {
+                    for (int i : takenResultsByDay.getOrDefault(day, List.of())) {
+                        results.set(i, results.get(i).withWarning("Compartment not found for day " + day + ": nothing dispensed."));
+                    }
+                }
+            }
+        }
+
+        if (taken > 0) {
+            notificationEngine.emit(
+                    NotificationRule.DOSE_TAKEN,
+                    userId,
+                    "DOSE_TAKEN_BULK:user=" + userId + ":at=" + now.withSecond(0).withNano(0),
+                    NotificationType.MEDICATION,
+                    NotificationSeverity.SUCCESS,
+                    "Medication marked as taken",
+                    taken + " dose(s) were marked as taken.",
+                    "/medication?tab=schedule",
+                    Duration.ofMinutes(5)
+            );
+        }
+
+        return results;
     }
 
-    private static class CapacityViolation {
-        final LocalDateTime at;
-        final Long doseId;
-        final int existingCount;
+    /** Outcome of one bulk item: the updated occurrence (with a warning if its side effects fell short), or why it was skipped. */
+    public record BulkStatusResult(Long occurrenceId, DoseOccurrence occurrence, String error, String warning) {
+        public boolean applied() {
+            return error == null;
+        }
 
-        CapacityViolation(LocalDateTime at, Long doseId, int existingCount) {
-            this.at = at;
-            this.doseId = doseId;
-            this.existingCount = existingCount;
+        BulkStatusResult withWarning(String warning) {
+            return new BulkStatusResult(occurrenceId, occurrence, error, warning);
         }
     }
 
+    // Wall clock of the user's time zone (scheduledAt / takenAt are wall times)
+    private LocalDateTime userNow(Long userId) {
+        return LocalDateTime.now(zoneResolver.zoneOf(userId));
+    }
+
+    private static AdherenceService.TerminalOutcome outcomeOf(DoseOccurrence o) {
+        Dose dose = o.getDose();
+        return new AdherenceService.TerminalOutcome(
+                dose.getUser().getUserId(),
+                dose.getId(),
+                dose.getMedication() == null ? null : dose.getMedication().getId(),
+                o.getScheduledAt(),
+                o.getStatus(),
+                o.getTakenAt()
+        );
+    }
+
+    private static String fmt(LocalDateTime dt) {
+        if (dt == null) return "null";
+        return dt.toLocalDate() + " " + String.format("%02d:%02d", dt.getHour(), dt.getMinute());
+    }
+
 }
@@ -0,0 +1,124 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.exception.CapacityExceededException;
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceBatchWriter.NewOccurrence;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Applies a dose rule change to its already materialized future, incrementally.
+ *
+ * The old and new compiled schedules are expanded over (now, materializedThrough] and merged
+ * (both are ordered), so only the instants that differ reach the DB:
+ * - instants only in the new rules are inserted
+ * - instants only in the old rules are deleted, if still SCHEDULED
+ *
+ * Past rows, taken rows and rows outside the materialized range are never touched.
+ */
+@Service
+public class DoseScheduleReconciler {
+
+    private final OccurrenceDayLoadService dayLoadService;
+    private final OccurrenceBatchWriter batchWriter;
+    private final OccurrenceVersionService versionService;
+
+    public DoseScheduleReconciler(
+            OccurrenceDayLoadService dayLoadService,
+            OccurrenceBatchWriter batchWriter,
+            OccurrenceVersionService versionService
+    ) {
+        this.dayLoadService = dayLoadService;
+        this.batchWriter = batchWriter;
+        this.versionService = versionService;
+    }
+
+    /**
+     * @throws CapacityExceededException with the capacity report if the new instants overflow a day
+     *                                   (the update transaction is expected to roll back)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Result reconcile(
+            Long userId,
+            CompiledSchedule before,
+            CompiledSchedule after,
+            LocalDateTime materializedThrough,
+            LocalDateTime now
+    ) {
+        if (materializedThrough == null || !materializedThrough.isAfter(now)) return Result.NONE;
+
+        List<NewOccurrence> added = new ArrayList<>();
+        List<NewOccurrence> removed = new ArrayList<>();
+        diff(before, after, now.plusNanos(1), materializedThrough, added, removed);
+
+        if (added.isEmpty() && removed.isEmpty()) return Result.NONE;
+
+        // Deletes first: their slots are free again for the new instants
+        int deleted = batchWriter.deleteFutureScheduled(userId, removed, now);
+
+        int inserted = 0;
+        if (!added.isEmpty()) {
+            LocalDate firstDay = added.get(0).at().toLocalDate();
+            LocalDate lastDay = added.get(added.size() - 1).at().toLocalDate();
+
+            OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner();
+            dayLoadService.loadsFor(userId, firstDay, lastDay).forEach(planner::countExisting);
+            for (NewOccurrence o : added) {
+                planner.tryAccept(o.doseId(), o.at());
+            }
+
+            if (planner.hasViolations()) {
+                throw new CapacityExceededException(planner.buildViolationReport());
+            }
+
+            dayLoadService.reserve(userId, planner.getAcceptedDateCounts(), planner.getMaxPerDay());
+            inserted = batchWriter.insertScheduled(userId, added);
+        }
+
+        if (inserted + deleted > 0) versionService.bump(userId);
+        return new Result(inserted, deleted);
+    }
+
+    // Merge of two ordered expansions: O(instants in range), no sets
+    static void diff(
+            CompiledSchedule before,
+            CompiledSchedule after,
+            LocalDateTime from,
+            LocalDateTime to,
+            List<NewOccurrence> added,
+            List<NewOccurrence> removed
+    ) {
+        Long doseId = after.getDoseId();
+        Iterator<LocalDateTime> oldIt = before.iterate(from, to);
+        Iterator<LocalDateTime> newIt = after.iterate(from, to);
+
+        LocalDateTime o = oldIt.hasNext() ? oldIt.next() : null;
+        LocalDateTime n = newIt.hasNext() ? newIt.next() : null;
+
+        while (o != null || n != null) {
+            int cmp = (o == null) ? 1 : (n == null) ? -1 : o.compareTo(n);
+
+            if (cmp == 0) {
+                o = oldIt.hasNext() ? oldIt.next() : null;
+                n = newIt.hasNext() ? newIt.next() : null;
+            } else if (cmp < 0) {
+                removed.add(new NewOccurrence(doseId, o));
+                o = oldIt.hasNext() ? oldIt.next() : null;
+            } else {
+                added.add(new NewOccurrence(doseId, n));
+                n = newIt.hasNext() ? newIt.next() : null;
+            }
+        }
+    }
+
+    public record Result(int inserted, int deleted) {
+        static final Result NONE = new Result(0, 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.model.dose.CompiledScheduleCache;
+import com.azedcods.home_buddy_v2.model.dose.Dose;
+import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.repository.dose.DoseScheduleKey;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Resolves users' doses to {@link CompiledSchedule}s.
+ *
+ * Reads only (id, user, version) keys; the dose_times / dose_days_of_week collections are
+ * fetched (in one query) only for cache misses.
+ */
+@Service
+public class DoseScheduleResolver {
+
+    private final DoseRepository doseRepo;
+    private final CompiledScheduleCache compiledCache;
+
+    public DoseScheduleResolver(DoseRepository doseRepo, CompiledScheduleCache compiledCache) {
+        this.doseRepo = doseRepo;
+        this.compiledCache = compiledCache;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CompiledSchedule> forUser(Long userId) {
+        return forUsers(List.of(userId)).getOrDefault(userId, List.of());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, List<CompiledSchedule>> forUsers(Collection<Long> userIds) {
+        Map<Long, List<CompiledSchedule>> out = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) return out;
+
+        List<DoseScheduleKey> keys = doseRepo.findScheduleKeysForUsers(userIds);
+        Map<Long, CompiledSchedule> byDoseId = resolve(keys);
+
+        for (DoseScheduleKey k : keys) {
+            CompiledSchedule cs = byDoseId.get(k.getId());
+            if (cs != null) out.computeIfAbsent(k.getUserId(), x -> new ArrayList<>()).add(cs);
+        }
+        return out;
+    }
+
+    /** doseId → compiled schedule for already-loaded keys. */
+    @Transactional(readOnly = true)
+    public Map<Long, CompiledSchedule> resolve(Collection<DoseScheduleKey> keys) {
+        // 1) cache hits
+        Map<Long, CompiledSchedule> byDoseId = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (DoseScheduleKey k : keys) {
+            CompiledSchedule hit = compiledCache.peek(k.getId(), version(k));
+            if (hit != null) byDoseId.put(k.getId(), hit);
+            else misses.add(k.getId());
+        }
+
+        // 2) misses: one fetch-join query, compile, remember
+        if (!misses.isEmpty()) {
+            for (Dose d : doseRepo.findWithScheduleRulesByIds(misses)) {
+                CompiledSchedule compiled = CompiledSchedule.compile(d);
+                compiledCache.put(compiled);
+                byDoseId.put(d.getId(), compiled);
+            }
+        }
+
+        return byDoseId;
+    }
+
+    private long version(DoseScheduleKey k) {
+        return k.getScheduleVersion() == null ? 0L : k.getScheduleVersion();
+    }
+}
@@ -2,10 +2,12 @@ package com.azedcods.home_buddy_v2.service.dose;
 
 import com.azedcods.home_buddy_v2.enums.MedicationSource;
 import com.azedcods.home_buddy_v2.model.auth.User;
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
 import com.azedcods.home_buddy_v2.model.dose.Dose;
 import com.azedcods.home_buddy_v2.model.medication.Medication;
 import com.azedcods.home_buddy_v2.payload.DoseDtos;
 import com.azedcods.home_buddy_v2.repository.auth.UserRepository;
+import com.azedcods.home_buddy_v2.repository.dose.DoseOccurrenceRepository;
 import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
 import com.azedcods.home_buddy_v2.repository.medication.MedicationRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -13,6 +15,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
@@ -24,13 +28,35 @@ import java.util.Set;
 public class DoseService {
 
     private final DoseRepository doseRepo;
+    private final DoseOccurrenceRepository occRepo;
     private final UserRepository userRepo;
     private final MedicationRepository medicationRepo;
-
-    public DoseService(DoseRepository doseRepo, UserRepository userRepo, MedicationRepository medicationRepo) {
+    private final OccurrenceDayLoadService dayLoadService;
+    private final DoseScheduleReconciler scheduleReconciler;
+    private final OccurrenceVersionService versionService;
+    private final SchedulePreviewService previewService;
+    private final UserZoneResolver zoneResolver;
+
+    public DoseService(
+            DoseRepository doseRepo,
+            DoseOccurrenceRepository occRepo,
+            UserRepository userRepo,
+            MedicationRepository medicationRepo,
+            OccurrenceDayLoadService dayLoadService,
+            DoseScheduleReconciler scheduleReconciler,
+            OccurrenceVersionService versionService,
+            SchedulePreviewService previewService,
+            UserZoneResolver zoneResolver
+    ) {
         this.doseRepo = doseRepo;
+        this.occRepo = occRepo;
         this.userRepo = userRepo;
         this.medicationRepo = medicationRepo;
+        this.dayLoadService = dayLoadService;
+        this.scheduleReconciler = scheduleReconciler;
+        this.versionService = versionService;
+        this.previewService = previewService;
+        this.zoneResolver = zoneResolver;
     }
 
     public Dose create(DoseDtos.CreateRequest req) {
@@ -97,6 +123,9 @@ public class DoseService {
     public Dose update(Long id, DoseDtos.UpdateRequest req) {
         Dose dose = getById(id);
 
+        // Rules as they were, to diff the materialized future against
+        CompiledSchedule before = touchesSchedule(req) ? CompiledSchedule.compile(dose) : null;
+
         if (req.timeFrequency() != null) {
             dose.setTimeFrequency(req.timeFrequency());
         }
@@ -119,12 +148,80 @@ public class DoseService {
         // Re-validate only if times are explicitly provided (non-empty)
         validateTimesIfProvided(dose.getTimeFrequency(), dose.getTimes());
 
+        // New rule version => compiled schedule cache picks up the change;
+        // existing future occurrences are patched with only the instants that changed
+        if (before != null) {
+            Long userId = dose.getUser().getUserId();
+            dose.bumpScheduleVersion();
+            scheduleReconciler.reconcile(
+                    userId,
+                    before,
+                    CompiledSchedule.compile(dose),
+                    reconcileThrough(dose),
+                    LocalDateTime.now(zoneResolver.zoneOf(userId)) // "future" in the user's wall time
+            );
+        }
+
         return dose;
     }
 
+    /** Dry-run of {@link #create}: capacity of the user's days with the new dose added. Writes nothing. */
+    @Transactional(readOnly = true)
+    public DoseDtos.PreviewResponse previewCreate(DoseDtos.CreateRequest req, LocalDate from, LocalDate to) {
+        if (req.userId() == null || !userRepo.existsById(req.userId())) {
+            throw new EntityNotFoundException("User not found: " + req.userId());
+        }
+
+        Set<LocalTime> times = normalizeTimes(req.times());
+        validateTimesIfProvided(req.timeFrequency(), times);
+
+        CompiledSchedule proposed = CompiledSchedule.of(
+                null, 0L, req.timeFrequency(), req.daysOfWeek(), times, req.startDate(), req.endDate()
+        );
+        return previewService.simulate(req.userId(), null, proposed, from, to);
+    }
+
+    /** Dry-run of {@link #update}: the dose's rules are replaced by the merged proposal. The entity is not touched. */
+    @Transactional(readOnly = true)
+    public DoseDtos.PreviewResponse previewUpdate(Long id, DoseDtos.UpdateRequest req, LocalDate from, LocalDate to) {
+        Dose dose = getById(id);
+
+        Integer timeFrequency = req.timeFrequency() != null ? req.timeFrequency() : dose.getTimeFrequency();
+        Set<DayOfWeek> days = req.daysOfWeek() != null ? req.daysOfWeek() : dose.getDaysOfWeek();
+        Set<LocalTime> times = req.times() != null ? normalizeTimes(req.times()) : dose.getTimes();
+        LocalDate startDate = req.startDate() != null ? req.startDate() : dose.getStartDate();
+        LocalDate endDate = req.endDate() != null ? req.endDate() : dose.getEndDate();
+
+        validateTimesIfProvided(timeFrequency, times);
+
+        CompiledSchedule proposed = CompiledSchedule.of(
+                dose.getId(), dose.getScheduleVersion() + 1, timeFrequency, days, times, startDate, endDate
+        );
+        return previewService.simulate(dose.getUser().getUserId(), dose.getId(), proposed, from, to);
+    }
+
     public void delete(Long id) {
-        if (!doseRepo.existsById(id)) throw new EntityNotFoundException("Dose not found: " + id);
-        doseRepo.deleteById(id);
+        Dose dose = getById(id);
+        // Occurrences leave with the dose: give their slots back to the day counters
+        dayLoadService.releaseForDose(id);
+        versionService.bump(dose.getUser().getUserId());
+        doseRepo.delete(dose);
+    }
+
+    // Watermark, or the latest existing row if rows were generated past it (or without one)
+    private LocalDateTime reconcileThrough(Dose dose) {
+        LocalDateTime watermark = dose.getMaterializedThrough();
+        LocalDateTime lastRow = occRepo.findLastScheduledAt(dose.getId());
+        if (watermark == null) return lastRow;
+        return (lastRow == null || !lastRow.isAfter(watermark)) ? watermark : lastRow;
+    }
+
+    private boolean touchesSchedule(DoseDtos.UpdateRequest req) {
+        return req.timeFrequency() != null
+                || req.daysOfWeek() != null
+                || req.times() != null
+                || req.startDate() != null
+                || req.endDate() != null;
     }
 
     private Set<LocalTime> normalizeTimes(Set<LocalTime> times) {
@@ -0,0 +1,47 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of one nightly generation run: per-user timing, failures and retries.
+ */
+public record GenerationRunReport(
+        Instant startedAt,
+        Instant finishedAt,
+        List<UserOutcome> outcomes
+) {
+
+    public Duration duration() {
+        return Duration.between(startedAt, finishedAt);
+    }
+
+    public long count(Status status) {
+        return outcomes.stream().filter(o -> o.status() == status).count();
+    }
+
+    public int totalInserted() {
+        return outcomes.stream().mapToInt(UserOutcome::inserted).sum();
+    }
+
+    /** Attempts beyond the first one, summed over all users. */
+    public int totalRetries() {
+        return outcomes.stream().mapToInt(o -> Math.max(0, o.attempts() - 1)).sum();
+    }
+
+    public enum Status {
+        OK,
+        REJECTED, // capacity violation: deterministic, never retried
+        FAILED    // unexpected error, or transient errors past the retry budget
+    }
+
+    public record UserOutcome(
+            Long userId,
+            Status status,
+            int inserted,
+            int attempts,
+            long durationMs,
+            String error
+    ) {}
+}
@@ -0,0 +1,127 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Moves closed history (TAKEN / MISSED / SKIPPED older than the configured age) from the hot
+ * dose_occurrence partitions into dose_occurrence_archive.
+ *
+ * Each batch is one statement in its own transaction: the INSERT into the archive feeds, through
+ * RETURNING, the DELETE from the hot table, so a row is only removed once it is archived. The owners'
+ * window versions are bumped in that same transaction. Partitions left empty are dropped afterwards.
+ */
+@Service
+public class OccurrenceArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrenceArchiver.class);
+
+    // Only rows the archive accepted are deleted; ids already archived are never candidates
+    private static final String ARCHIVE_BATCH_SQL = """
+            with candidates as (
+                select c.id, c.dose_id, c.scheduled_at, c.scheduled_instant, c.status, c.taken_at, c.note, c.created_at
+                  from dose_occurrence c
+                 where c.scheduled_at < ?
+                   and c.status in ('TAKEN', 'MISSED', 'SKIPPED')
+                   and not exists (select 1 from dose_occurrence_archive a where a.id = c.id)
+                 order by c.scheduled_at
+                 limit ?
+                   for update skip locked
+            ),
+            archived as (
+                insert into dose_occurrence_archive
+                       (id, dose_id, user_id, scheduled_at, scheduled_instant, status, taken_at, note, created_at, archived_at)
+                select m.id, m.dose_id, d.user_id, m.scheduled_at, m.scheduled_instant, m.status, m.taken_at, m.note,
+                       m.created_at, now()
+                  from candidates m
+                  join dose d on d.id = m.dose_id
+                on conflict (id) do nothing
+                returning id, scheduled_at, user_id
+            ),
+            moved as (
+                delete from dose_occurrence o
+                 using archived a
+                 where o.id = a.id
+                   and o.scheduled_at = a.scheduled_at
+            )
+            select user_id, count(*) as moved
+              from archived
+             group by user_id
+            """;
+
+    private static final String LEFT_BEHIND_SQL = """
+            select count(*)
+              from dose_occurrence c
+             where c.scheduled_at < ?
+               and c.status in ('TAKEN', 'MISSED', 'SKIPPED')
+               and exists (select 1 from dose_occurrence_archive a where a.id = c.id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OccurrencePartitionMaintainer partitionMaintainer;
+    private final OccurrenceVersionService versionService;
+    private final TransactionTemplate tx;
+
+    private final int archiveAfterDays;
+    private final int batchSize;
+
+    public OccurrenceArchiver(
+            JdbcTemplate jdbcTemplate,
+            OccurrencePartitionMaintainer partitionMaintainer,
+            OccurrenceVersionService versionService,
+            PlatformTransactionManager txManager,
+            @Value("${homebuddy.occurrences.archive-after-days:90}") int archiveAfterDays,
+            @Value("${homebuddy.occurrences.archive-batch-size:5000}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionMaintainer = partitionMaintainer;
+        this.versionService = versionService;
+        this.tx = new TransactionTemplate(txManager);
+        this.archiveAfterDays = Math.max(1, archiveAfterDays);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** @return number of rows moved to the archive */
+    public int archive(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusDays(archiveAfterDays);
+
+        int total = 0;
+        while (true) {
+            Integer moved = tx.execute(status -> archiveBatch(cutoff));
+            int n = (moved == null) ? 0 : moved;
+            total += n;
+            if (n < batchSize) break;
+        }
+
+        // Kept in the hot table rather than lost: needs a look by hand
+        Integer leftBehind = jdbcTemplate.queryForObject(LEFT_BEHIND_SQL, Integer.class, cutoff);
+        if (leftBehind != null && leftBehind > 0) {
+            logger.warn("{} closed occurrence(s) before {} not archived: their id is already in the archive", leftBehind, cutoff);
+        }
+
+        partitionMaintainer.dropEmptyPartitionsBefore(cutoff);
+
+        if (total > 0) logger.info("Archived {} closed occurrence(s) scheduled before {}", total, cutoff);
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        Map<Long, Integer> movedByUser = new HashMap<>();
+        jdbcTemplate.query(ARCHIVE_BATCH_SQL,
+                (RowCallbackHandler) rs -> movedByUser.put(rs.getLong("user_id"), rs.getInt("moved")),
+                cutoff, batchSize);
+
+        versionService.bumpUsers(movedByUser.keySet());
+        return movedByUser.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
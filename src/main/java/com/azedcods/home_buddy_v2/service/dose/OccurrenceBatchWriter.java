@@ -0,0 +1,123 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import com.azedcods.home_buddy_v2.model.dose.ZonedDayOffsets;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched JDBC writes of occurrence rows that keep the day-load counters in step.
+ *
+ * - Inserts are idempotent (ON CONFLICT on uk_occurrence_dose_scheduledat); the caller reserves the
+ *   counters beforehand, rows skipped by the conflict are released here
+ * - Deletes only touch future rows still SCHEDULED; what was really deleted is released
+ *
+ * Must run inside the caller's transaction.
+ */
+@Component
+public class OccurrenceBatchWriter {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_SQL = """
+            insert into dose_occurrence (dose_id, scheduled_at, scheduled_instant, status, created_at, updated_at)
+            values (?, ?, ?, ?, ?, ?)
+            on conflict on constraint uk_occurrence_dose_scheduledat do nothing
+            """;
+
+    private static final String DELETE_SCHEDULED_SQL = """
+            delete from dose_occurrence
+             where dose_id = ?
+               and scheduled_at = ?
+               and scheduled_at > ?
+               and status = 'SCHEDULED'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OccurrenceDayLoadService dayLoadService;
+    private final UserZoneResolver zoneResolver;
+
+    public OccurrenceBatchWriter(
+            JdbcTemplate jdbcTemplate,
+            OccurrenceDayLoadService dayLoadService,
+            UserZoneResolver zoneResolver
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dayLoadService = dayLoadService;
+        this.zoneResolver = zoneResolver;
+    }
+
+    /** @return number of rows actually inserted */
+    public int insertScheduled(Long userId, List<NewOccurrence> rows) {
+        if (rows.isEmpty()) return 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        ZonedDayOffsets zone = zoneResolver.offsetsFor(zoneResolver.zoneOf(userId));
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.doseId());
+            ps.setObject(2, row.at());
+            ps.setObject(3, OffsetDateTime.ofInstant(zone.toInstant(row.at()), ZoneOffset.UTC));
+            ps.setString(4, OccurrenceStatus.SCHEDULED.name());
+            ps.setObject(5, now);
+            ps.setObject(6, now);
+        });
+
+        // Rows another writer inserted meanwhile are already counted by that writer
+        Map<LocalDate, Integer> skipped = new HashMap<>();
+        int inserted = tally(counts, rows, skipped);
+        if (!skipped.isEmpty()) dayLoadService.release(userId, skipped);
+        return inserted;
+    }
+
+    /** @return number of rows actually deleted (taken / past / already gone rows are kept) */
+    public int deleteFutureScheduled(Long userId, List<NewOccurrence> rows, LocalDateTime now) {
+        if (rows.isEmpty()) return 0;
+
+        int[][] counts = jdbcTemplate.batchUpdate(DELETE_SCHEDULED_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.doseId());
+            ps.setObject(2, row.at());
+            ps.setObject(3, now);
+        });
+
+        Map<LocalDate, Integer> deletedByDay = new HashMap<>();
+        int i = 0;
+        int deleted = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                NewOccurrence row = rows.get(i++);
+                if (c > 0) {
+                    deleted += c;
+                    deletedByDay.merge(row.at().toLocalDate(), c, Integer::sum);
+                }
+            }
+        }
+
+        if (!deletedByDay.isEmpty()) dayLoadService.release(userId, deletedByDay);
+        return deleted;
+    }
+
+    private int tally(int[][] counts, List<NewOccurrence> rows, Map<LocalDate, Integer> skipped) {
+        int inserted = 0;
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                NewOccurrence row = rows.get(i++);
+                if (c > 0) inserted += c;
+                else if (c == 0) skipped.merge(row.at().toLocalDate(), 1, Integer::sum);
+            }
+        }
+        return inserted;
+    }
+
+    /** (dose, wall time) of a SCHEDULED row to write or remove; the instant is derived from the user's zone. */
+    public record NewOccurrence(Long doseId, LocalDateTime at) {}
+}
@@ -0,0 +1,142 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory per-day capacity bookkeeping for one user's occurrence window.
+ *
+ * Seed it with the occurrences that already exist, then offer candidates with {@link #tryAccept}.
+ * Nothing is persisted here: callers decide what to do with the accepted candidates and the violations.
+ */
+public class OccurrenceCapacityPlanner {
+
+    public static final int MAX_OCCURRENCES_PER_DAY = 7;
+
+    private static final int MAX_REPORT_LINES = 25; // prevent insane error messages
+
+    private final int maxPerDay;
+
+    // date -> count (use LocalDate, not dayOfMonth; avoids cross-month collisions)
+    private final Map<LocalDate, Integer> dateCount = new HashMap<>();
+    private final Map<LocalDate, Integer> acceptedCount = new HashMap<>();
+    private final List<CapacityViolation> violations = new ArrayList<>();
+
+    public OccurrenceCapacityPlanner() {
+        this(MAX_OCCURRENCES_PER_DAY);
+    }
+
+    public OccurrenceCapacityPlanner(int maxPerDay) {
+        this.maxPerDay = maxPerDay;
+    }
+
+    public void countExisting(LocalDateTime at) {
+        if (at == null) return;
+        dateCount.merge(at.toLocalDate(), 1, Integer::sum);
+    }
+
+    /** Seed a whole day at once (e.g. from the persisted day-load counters). */
+    public void countExisting(LocalDate day, int count) {
+        if (day == null || count <= 0) return;
+        dateCount.merge(day, count, Integer::sum);
+    }
+
+    /**
+     * Tentatively accept one more occurrence at {@code at}.
+     * @return false (and records a violation) if that day is already full.
+     */
+    public boolean tryAccept(Long doseId, LocalDateTime at) {
+        LocalDate date = at.toLocalDate();
+        int current = dateCount.getOrDefault(date, 0);
+
+        if (current >= maxPerDay) {
+            violations.add(new CapacityViolation(at, doseId, current));
+            return false;
+        }
+
+        dateCount.put(date, current + 1);
+        acceptedCount.merge(date, 1, Integer::sum);
+        return true;
+    }
+
+    public boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+
+    public List<CapacityViolation> getViolations() {
+        return violations;
+    }
+
+    public int getMaxPerDay() {
+        return maxPerDay;
+    }
+
+    /** Occurrence count per date (existing + accepted). */
+    public Map<LocalDate, Integer> getDateCounts() {
+        return dateCount;
+    }
+
+    /** Only the candidates accepted by {@link #tryAccept}, per date (what the day-load counters must grow by). */
+    public Map<LocalDate, Integer> getAcceptedDateCounts() {
+        return acceptedCount;
+    }
+
+    /** Same counts keyed by day-of-month, the shape the dispenser compartments use. */
+    public Map<Integer, Integer> getDayOfMonthCounts() {
+        Map<Integer, Integer> pillsByDay = new HashMap<>();
+        dateCount.forEach((date, count) -> pillsByDay.merge(date.getDayOfMonth(), count, Integer::sum));
+        return pillsByDay;
+    }
+
+    /** Human-readable report of every violation, grouped by date. */
+    public String buildViolationReport() {
+        // Group violations by date for a cleaner message
+        Map<LocalDate, List<CapacityViolation>> byDate = new LinkedHashMap<>();
+        for (CapacityViolation v : violations) {
+            byDate.computeIfAbsent(v.at().toLocalDate(), k -> new ArrayList<>()).add(v);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Cannot generate occurrences: dispenser capacity is ")
+                .append(maxPerDay)
+                .append(" per day.\n\n");
+
+        int shown = 0;
+
+        for (var entry : byDate.entrySet()) {
+            LocalDate date = entry.getKey();
+            List<CapacityViolation> items = entry.getValue();
+
+            // the first violation’s existingCount reflects "already full"
+            int existing = items.get(0).existingCount();
+
+            sb.append("• ").append(date)
+                    .append(" already has ").append(existing)
+                    .append(" scheduled occurrence(s). Attempted to add ")
+                    .append(items.size()).append(" more.\n");
+
+            for (CapacityViolation v : items) {
+                if (shown >= MAX_REPORT_LINES) break;
+                sb.append("   - doseId=").append(v.doseId())
+                        .append(" at ").append(String.format("%02d:%02d", v.at().getHour(), v.at().getMinute()))
+                        .append("\n");
+                shown++;
+            }
+
+            if (shown >= MAX_REPORT_LINES) {
+                sb.append("\n(Only first ").append(MAX_REPORT_LINES).append(" overflow items shown.)\n");
+                break;
+            }
+        }
+
+        sb.append("\nFix: reduce daily frequency / remove overlapping doses / adjust schedule rules.");
+        return sb.toString();
+    }
+
+    public record CapacityViolation(LocalDateTime at, Long doseId, int existingCount) {}
+}
@@ -0,0 +1,20 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.util.KeysetCursorCodec;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset position in a (scheduledAt, id) ordered occurrence listing.
+ * Encoded as an opaque URL-safe token so clients never build it themselves.
+ */
+public record OccurrenceCursor(LocalDateTime scheduledAt, Long id) {
+
+    public String encode() {
+        return KeysetCursorCodec.encode(scheduledAt, id);
+    }
+
+    public static OccurrenceCursor decode(String token) {
+        return KeysetCursorCodec.decode(token, LocalDateTime::parse, OccurrenceCursor::new);
+    }
+}
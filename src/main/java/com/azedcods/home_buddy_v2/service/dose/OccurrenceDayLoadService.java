@@ -0,0 +1,127 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.exception.CapacityExceededException;
+import com.azedcods.home_buddy_v2.repository.dose.DayLoad;
+import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceDayLoadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Per-user/per-day occurrence counters (occurrence_day_load).
+ *
+ * - Capacity checks read O(days) counter rows instead of the occurrences of the window
+ * - {@link #reserve} increments conditionally (never past the cap) and must share the transaction
+ *   that inserts the occurrences: a rejected day or a failed insert rolls the counters back too
+ * - Days are reserved in ascending order so concurrent generators lock rows in the same order
+ */
+@Service
+public class OccurrenceDayLoadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrenceDayLoadService.class);
+
+    private static final int RECONCILE_BATCH_SIZE = 200;
+
+    private final OccurrenceDayLoadRepository loadRepo;
+    private final DoseRepository doseRepo;
+    private final TransactionTemplate tx;
+
+    public OccurrenceDayLoadService(
+            OccurrenceDayLoadRepository loadRepo,
+            DoseRepository doseRepo,
+            PlatformTransactionManager txManager
+    ) {
+        this.loadRepo = loadRepo;
+        this.doseRepo = doseRepo;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /** Counter per day in [fromDay, toDay]; days without a row are absent (= 0). */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Integer> loadsFor(Long userId, LocalDate fromDay, LocalDate toDay) {
+        Map<LocalDate, Integer> out = new HashMap<>();
+        for (DayLoad l : loadRepo.findLoads(userId, fromDay, toDay)) {
+            out.put(l.getDay(), l.getOccurrenceCount());
+        }
+        return out;
+    }
+
+    /** userId → (day → counter) for a user partition, in one query. */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<LocalDate, Integer>> loadsForUsers(Collection<Long> userIds, LocalDate fromDay, LocalDate toDay) {
+        Map<Long, Map<LocalDate, Integer>> out = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) return out;
+
+        for (DayLoad l : loadRepo.findLoadsForUsers(userIds, fromDay, toDay)) {
+            out.computeIfAbsent(l.getUserId(), k -> new HashMap<>()).put(l.getDay(), l.getOccurrenceCount());
+        }
+        return out;
+    }
+
+    /**
+     * Atomically add {@code additions} to the user's days.
+     *
+     * @throws CapacityExceededException if any day would exceed {@code maxPerDay}
+     *                                   (the caller's transaction is expected to roll back)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long userId, Map<LocalDate, Integer> additions, int maxPerDay) {
+        for (var e : new TreeMap<>(additions).entrySet()) {
+            int amount = e.getValue();
+            if (amount <= 0) continue;
+
+            if (loadRepo.tryReserve(userId, e.getKey(), amount, maxPerDay) == 0) {
+                throw new CapacityExceededException(
+                        "Cannot generate occurrences: dispenser capacity is " + maxPerDay + " per day.\n\n"
+                                + "• " + e.getKey() + " cannot take " + amount + " more occurrence(s)"
+                                + " (changed concurrently, please retry)."
+                );
+            }
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long userId, Map<LocalDate, Integer> removals) {
+        for (var e : new TreeMap<>(removals).entrySet()) {
+            if (e.getValue() > 0) loadRepo.release(userId, e.getKey(), e.getValue());
+        }
+    }
+
+    /** Must run before the dose's occurrences are deleted. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseForDose(Long doseId) {
+        loadRepo.releaseForDose(doseId);
+    }
+
+    /** Recount the users' counters from dose_occurrence. */
+    @Transactional
+    public void reconcile(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return;
+        loadRepo.deleteForUsers(userIds);
+        loadRepo.recountForUsers(userIds);
+    }
+
+    /** First start with the counter table: backfill it from the existing occurrences. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (loadRepo.anyLoads()) return;
+
+        List<Long> userIds = doseRepo.findDistinctUserIdsWithDoses();
+        for (int i = 0; i < userIds.size(); i += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(i, Math.min(i + RECONCILE_BATCH_SIZE, userIds.size()));
+            tx.executeWithoutResult(status -> reconcile(batch));
+        }
+
+        logger.info("Occurrence day loads backfilled for {} user(s)", userIds.size());
+    }
+}
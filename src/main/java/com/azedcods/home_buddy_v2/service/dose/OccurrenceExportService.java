@@ -0,0 +1,267 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+
+/**
+ * Streams a user's whole occurrence history (hot partitions + archive) as NDJSON or CSV.
+ *
+ * - Rows come from a forward-only JDBC cursor with a fixed fetch size (PostgreSQL only uses a
+ *   cursor inside a transaction, hence the read-only transaction) and are written straight to the
+ *   output: heap use does not depend on the history size
+ * - Rows are ordered by (scheduledAt, id); every row carries the {@link OccurrenceCursor} token that
+ *   resumes the export right after it, so an interrupted multi-gigabyte download continues where it stopped
+ */
+@Service
+public class OccurrenceExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 5000;
+
+    private static final LocalDateTime MIN_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final String CSV_HEADER = "id,doseId,scheduledAt,scheduledInstant,status,takenAt,note,archived,cursor\n";
+
+    private static final String EXPORT_SQL = """
+            select h.id, h.dose_id, h.scheduled_at, h.scheduled_instant, h.status, h.taken_at, h.note, h.archived
+              from (select o.id, o.dose_id, o.scheduled_at, o.scheduled_instant, o.status, o.taken_at, o.note,
+                           false as archived
+                      from dose_occurrence o
+                      join dose d on d.id = o.dose_id
+                     where d.user_id = ?
+                       and o.scheduled_at between ? and ?
+                       and (o.scheduled_at, o.id) > (?, ?)
+                    union all
+                    select a.id, a.dose_id, a.scheduled_at, a.scheduled_instant, a.status, a.taken_at, a.note,
+                           true
+                      from dose_occurrence_archive a
+                     where a.user_id = ?
+                       and a.scheduled_at between ? and ?
+                       and (a.scheduled_at, a.id) > (?, ?)) h
+             order by h.scheduled_at, h.id
+            """;
+
+    private final JdbcTemplate cursorJdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+
+    public OccurrenceExportService(DataSource dataSource, PlatformTransactionManager txManager, ObjectMapper objectMapper) {
+        this.cursorJdbc = new JdbcTemplate(dataSource);
+        this.cursorJdbc.setFetchSize(FETCH_SIZE);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write the export to {@code out}; the stream is flushed, not closed.
+     *
+     * @param resumeToken cursor of the last row received, or {@code null} to start at the beginning
+     * @return number of rows written
+     */
+    public long export(
+            Long userId,
+            LocalDateTime from,
+            LocalDateTime to,
+            ExportFormat format,
+            String resumeToken,
+            OutputStream out
+    ) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+
+        LocalDateTime lo = (from == null) ? MIN_AT : from;
+        LocalDateTime hi = (to == null) ? MAX_AT : to;
+        OccurrenceCursor after = (resumeToken == null || resumeToken.isBlank())
+                ? new OccurrenceCursor(lo, Long.MIN_VALUE)
+                : OccurrenceCursor.decode(resumeToken);
+
+        RowWriter writer = (format == ExportFormat.CSV) ? new CsvWriter(out) : new NdjsonWriter(out);
+
+        Long written = readOnlyTx.execute(status -> {
+            long[] rows = {0};
+            cursorJdbc.query(EXPORT_SQL, (RowCallbackHandler) rs -> {
+                writer.write(rs);
+                if (++rows[0] % FLUSH_EVERY_ROWS == 0) writer.flush();
+            },
+                    userId, lo, hi, after.scheduledAt(), after.id(),
+                    userId, lo, hi, after.scheduledAt(), after.id());
+            return rows[0];
+        });
+
+        writer.finish();
+        return written == null ? 0 : written;
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static ExportFormat parse(String value) {
+            if (value == null || value.isBlank()) return NDJSON;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format must be ndjson or csv");
+            }
+        }
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException;
+
+        void flush();
+
+        void finish();
+    }
+
+    private static String cursorOf(LocalDateTime scheduledAt, long id) {
+        return new OccurrenceCursor(scheduledAt, id).encode();
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+
+        private final OutputStream out;
+        private final JsonGenerator json;
+
+        private NdjsonWriter(OutputStream out) {
+            this.out = out;
+            try {
+                this.json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                this.json.setRootValueSeparator(null); // lines are delimited explicitly
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            LocalDateTime scheduledAt = rs.getObject("scheduled_at", LocalDateTime.class);
+            OffsetDateTime instant = rs.getObject("scheduled_instant", OffsetDateTime.class);
+            LocalDateTime takenAt = rs.getObject("taken_at", LocalDateTime.class);
+            try {
+                json.writeStartObject();
+                json.writeNumberField("id", id);
+                json.writeNumberField("doseId", rs.getLong("dose_id"));
+                json.writeStringField("scheduledAt", scheduledAt.toString());
+                json.writeStringField("scheduledInstant", instant == null ? null : instant.toInstant().toString());
+                json.writeStringField("status", rs.getString("status"));
+                json.writeStringField("takenAt", takenAt == null ? null : takenAt.toString());
+                json.writeStringField("note", rs.getString("note"));
+                json.writeBooleanField("archived", rs.getBoolean("archived"));
+                json.writeStringField("cursor", cursorOf(scheduledAt, id));
+                json.writeEndObject();
+                json.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() {
+            try {
+                json.close();
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer out;
+
+        private CsvWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            append(CSV_HEADER);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            LocalDateTime scheduledAt = rs.getObject("scheduled_at", LocalDateTime.class);
+            OffsetDateTime instant = rs.getObject("scheduled_instant", OffsetDateTime.class);
+            LocalDateTime takenAt = rs.getObject("taken_at", LocalDateTime.class);
+
+            append(id + "," + rs.getLong("dose_id") + "," + scheduledAt + ","
+                    + (instant == null ? "" : instant.toInstant()) + ","
+                    + rs.getString("status") + ","
+                    + (takenAt == null ? "" : takenAt) + ","
+                    + escape(rs.getString("note")) + ","
+                    + rs.getBoolean("archived") + ","
+                    + cursorOf(scheduledAt, id) + "\n");
+        }
+
+        @Override
+        public void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() {
+            flush();
+        }
+
+        private void append(String s) {
+            try {
+                out.write(s);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // RFC 4180: quote when needed, double the quotes
+        private static String escape(String s) {
+            if (s == null) return "";
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.exception.CapacityExceededException;
+import com.azedcods.home_buddy_v2.repository.dose.DoseRepository;
+import com.azedcods.home_buddy_v2.service.dispenser.DispenserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs nightly generation for every user, in parallel and with per-user isolation.
+ *
+ * - Users are split into partitions; each partition runs on its own virtual thread
+ * - A partition is read once (set-based), then each user is written in its own transaction
+ * - A semaphore caps concurrent DB work (keep it at or below the connection pool size)
+ * - Transient DB errors are retried; a capacity violation only affects that user
+ */
+@Service
+public class OccurrenceGenerationExecutor {
+
+    private final DoseRepository doseRepo;
+    private final BulkOccurrenceGenerator generator;
+    private final DispenserService dispenserService;
+    private final TransactionTemplate tx;
+
+    private final int partitionSize;
+    private final int maxConcurrentDbWork;
+    private final int maxAttempts;
+
+    public OccurrenceGenerationExecutor(
+            DoseRepository doseRepo,
+            BulkOccurrenceGenerator generator,
+            DispenserService dispenserService,
+            PlatformTransactionManager txManager,
+            @Value("${homebuddy.generation.partition-size:100}") int partitionSize,
+            @Value("${homebuddy.generation.max-concurrent-db-work:4}") int maxConcurrentDbWork,
+            @Value("${homebuddy.generation.max-attempts:3}") int maxAttempts
+    ) {
+        this.doseRepo = doseRepo;
+        this.generator = generator;
+        this.dispenserService = dispenserService;
+        this.tx = new TransactionTemplate(txManager);
+        this.partitionSize = Math.max(1, partitionSize);
+        this.maxConcurrentDbWork = Math.max(1, maxConcurrentDbWork);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public GenerationRunReport run(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) throw new IllegalArgumentException("from/to are required");
+
+        Instant startedAt = Instant.now();
+
+        List<Long> userIds = doseRepo.findDistinctUserIdsWithDoses();
+        Map<Long, String> robotIds = dispenserService.resolveRobotIdsByUser();
+
+        Semaphore dbPermits = new Semaphore(maxConcurrentDbWork);
+        Queue<GenerationRunReport.UserOutcome> outcomes = new ConcurrentLinkedQueue<>();
+
+        // close() waits for every partition to finish
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Long> partition : partition(userIds)) {
+                executor.submit(() -> runPartition(partition, from, to, robotIds, dbPermits, outcomes));
+            }
+        }
+
+        return new GenerationRunReport(startedAt, Instant.now(), new ArrayList<>(outcomes));
+    }
+
+    private void runPartition(
+            List<Long> userIds,
+            LocalDateTime from,
+            LocalDateTime to,
+            Map<Long, String> robotIds,
+            Semaphore dbPermits,
+            Queue<GenerationRunReport.UserOutcome> outcomes
+    ) {
+        BulkOccurrenceGenerator.PartitionSnapshot snapshot;
+        try {
+            snapshot = withPermit(dbPermits, () -> generator.loadPartition(userIds, from, to));
+        } catch (RuntimeException e) {
+            for (Long userId : userIds) {
+                outcomes.add(new GenerationRunReport.UserOutcome(
+                        userId, GenerationRunReport.Status.FAILED, 0, 0, 0, "Partition load failed: " + e.getMessage()));
+            }
+            return;
+        }
+
+        for (Long userId : userIds) {
+            outcomes.add(runUser(snapshot, userId, robotIds.get(userId), dbPermits));
+        }
+    }
+
+    private GenerationRunReport.UserOutcome runUser(
+            BulkOccurrenceGenerator.PartitionSnapshot snapshot,
+            Long userId,
+            String robotId,
+            Semaphore dbPermits
+    ) {
+        long start = System.nanoTime();
+        int attempt = 0;
+
+        while (true) {
+            attempt++;
+            try {
+                Integer inserted = withPermit(dbPermits, () ->
+                        tx.execute(status -> generator.generateForUser(snapshot, userId, robotId)));
+
+                return outcome(userId, GenerationRunReport.Status.OK, inserted == null ? 0 : inserted, attempt, start, null);
+
+            } catch (CapacityExceededException e) {
+                return outcome(userId, GenerationRunReport.Status.REJECTED, 0, attempt, start, e.getMessage());
+
+            } catch (TransientDataAccessException e) {
+                if (attempt >= maxAttempts) {
+                    return outcome(userId, GenerationRunReport.Status.FAILED, 0, attempt, start, e.getMessage());
+                }
+                if (!backoff(attempt)) {
+                    return outcome(userId, GenerationRunReport.Status.FAILED, 0, attempt, start, "Interrupted");
+                }
+
+            } catch (RuntimeException e) {
+                return outcome(userId, GenerationRunReport.Status.FAILED, 0, attempt, start, e.getMessage());
+            }
+        }
+    }
+
+    private GenerationRunReport.UserOutcome outcome(
+            Long userId, GenerationRunReport.Status status, int inserted, int attempts, long startNanos, String error
+    ) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return new GenerationRunReport.UserOutcome(userId, status, inserted, attempts, durationMs, error);
+    }
+
+    private <T> T withPermit(Semaphore permits, Supplier<T> work) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a DB permit");
+        }
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(100L * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<List<Long>> partition(List<Long> userIds) {
+        List<List<Long>> out = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i += partitionSize) {
+            out.add(userIds.subList(i, Math.min(i + partitionSize, userIds.size())));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,125 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps dose_occurrence.scheduled_instant in step with the owners' time zones.
+ *
+ * - On startup, rows written before the column existed are filled in (one statement per user)
+ * - When a user changes time zone, their open rows keep their wall time and get a new instant;
+ *   once that commits, this node's zone cache and transition queue follow for that user only.
+ *   Other nodes' queues may still hold the old deadlines: the flips re-check each row's own instant
+ *
+ * The conversion runs in PostgreSQL (scheduled_at AT TIME ZONE zone), with zones validated here.
+ */
+@Service
+public class OccurrenceInstantMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrenceInstantMaintainer.class);
+
+    private static final String USERS_MISSING_INSTANTS_SQL = """
+            select distinct d.user_id
+              from dose_occurrence o
+              join dose d on d.id = o.dose_id
+             where o.scheduled_instant is null
+            """;
+
+    private static final String BACKFILL_USER_SQL = """
+            update dose_occurrence o
+               set scheduled_instant = o.scheduled_at at time zone ?
+              from dose d
+             where d.id = o.dose_id
+               and d.user_id = ?
+               and o.scheduled_instant is null
+            """;
+
+    private static final String REZONE_OPEN_SQL = """
+            update dose_occurrence o
+               set scheduled_instant = o.scheduled_at at time zone ?
+              from dose d
+             where d.id = o.dose_id
+               and d.user_id = ?
+               and o.status in ('SCHEDULED', 'DUE')
+            returning o.id, o.scheduled_instant, o.status
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserZoneResolver zoneResolver;
+    private final OccurrenceTransitionScheduler transitionScheduler;
+    private final TransactionTemplate tx;
+
+    public OccurrenceInstantMaintainer(
+            JdbcTemplate jdbcTemplate,
+            UserZoneResolver zoneResolver,
+            OccurrenceTransitionScheduler transitionScheduler,
+            PlatformTransactionManager txManager
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.zoneResolver = zoneResolver;
+        this.transitionScheduler = transitionScheduler;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    // After the partition conversion, before the transition queue is seeded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void backfillMissing() {
+        List<Long> userIds = jdbcTemplate.queryForList(USERS_MISSING_INSTANTS_SQL, Long.class);
+        if (userIds.isEmpty()) return;
+
+        Map<Long, ZoneId> zones = zoneResolver.zonesOf(userIds);
+        Integer updated = tx.execute(status -> {
+            int n = 0;
+            for (Long userId : userIds) {
+                n += jdbcTemplate.update(BACKFILL_USER_SQL, zones.get(userId).getId(), userId);
+            }
+            return n;
+        });
+
+        logger.info("Backfilled scheduled_instant for {} occurrence(s) of {} user(s)", updated, userIds.size());
+    }
+
+    /** A user's time zone changed: open occurrences keep their wall time, at the new zone's instant. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int rezoneUser(Long userId) {
+        // Not through the cache: a rollback must not leave the new zone cached
+        String zone = zoneResolver.resolve(userId).getId();
+        List<Rezoned> rows = jdbcTemplate.query(REZONE_OPEN_SQL, (rs, i) -> new Rezoned(
+                rs.getLong("id"),
+                rs.getObject("scheduled_instant", OffsetDateTime.class).toInstant(),
+                OccurrenceStatus.valueOf(rs.getString("status"))
+        ), zone, userId);
+
+        // Only committed instants may reach the in-memory queue
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                zoneResolver.evict(userId);
+                for (Rezoned r : rows) transitionScheduler.retrack(r.id(), r.scheduledInstant(), r.status());
+            }
+        });
+        return rows.size();
+    }
+
+    private record Rezoned(Long id, Instant scheduledInstant, OccurrenceStatus status) {}
+}
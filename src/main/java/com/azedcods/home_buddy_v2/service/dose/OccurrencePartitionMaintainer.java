@@ -0,0 +1,250 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Monthly range partitioning of dose_occurrence by scheduled_at (PostgreSQL).
+ *
+ * - A plain dose_occurrence table (as created by ddl-auto) is converted by a one-off migration, run
+ *   explicitly ({@link OccurrencePartitionMigration}): renamed, recreated as a partitioned table,
+ *   rows copied, old table dropped. Startup only checks for it, and warns while it has not run
+ * - Partitions dose_occurrence_pYYYY_MM are kept created ahead of time; a default partition
+ *   catches anything outside them, and its rows move into their month once that partition is created
+ * - Partitions emptied by the archiver are dropped, so the hot set stays small
+ *
+ * Primary key becomes (id, scheduled_at): PostgreSQL requires the partition key in unique constraints.
+ * uk_occurrence_dose_scheduledat keeps its name, so ON CONFLICT ON CONSTRAINT still works.
+ */
+@Service
+public class OccurrencePartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrencePartitionMaintainer.class);
+
+    private static final String TABLE = "dose_occurrence";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    // Serializes migrations started on several nodes at once
+    private static final long MIGRATION_LOCK = 0x6f63635f70617274L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final int monthsAhead;
+
+    public OccurrencePartitionMaintainer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager txManager,
+            @Value("${homebuddy.occurrences.partition-months-ahead:3}") int monthsAhead
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(txManager);
+        this.monthsAhead = Math.max(1, monthsAhead);
+    }
+
+    // Before every other startup listener that reads occurrences
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStartup() {
+        if (!tableExists()) return;
+        if (!isPartitioned()) {
+            logger.warn("dose_occurrence is not partitioned: run the one-off migration once, on a single instance "
+                    + "(--homebuddy.occurrences.migrate-to-partitions=true)");
+            return;
+        }
+        ensurePartitions(YearMonth.now());
+    }
+
+    /**
+     * One-off conversion of a plain dose_occurrence into monthly partitions. Takes an ACCESS EXCLUSIVE
+     * lock and copies every row: run it in a maintenance window. Concurrent runs wait for each other
+     * and only the first converts.
+     *
+     * @return whether the table was converted ({@code false} if missing or already partitioned)
+     */
+    public boolean migrateToPartitioned() {
+        Boolean converted = tx.execute(status -> {
+            jdbcTemplate.queryForList("select pg_advisory_xact_lock(?)", MIGRATION_LOCK);
+            if (!tableExists() || isPartitioned()) return false;
+            convertToPartitioned();
+            return true;
+        });
+        if (Boolean.TRUE.equals(converted)) ensurePartitions(YearMonth.now());
+        return Boolean.TRUE.equals(converted);
+    }
+
+    /** Create the partitions for {@code from} and the configured months ahead (idempotent; no-op until migrated). */
+    public void ensurePartitions(YearMonth from) {
+        if (!isPartitioned()) return;
+        for (int i = 0; i <= monthsAhead; i++) {
+            createMonth(from.plusMonths(i));
+        }
+    }
+
+    /** Drop monthly partitions that end before {@code cutoff} and hold no rows any more. */
+    public int dropEmptyPartitionsBefore(LocalDateTime cutoff) {
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        int dropped = 0;
+
+        for (String name : partitionNames()) {
+            YearMonth month = monthOf(name);
+            if (month == null || !month.isBefore(cutoffMonth)) continue;
+
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "select not exists (select 1 from " + name + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(empty)) continue;
+
+            jdbcTemplate.execute("drop table if exists " + name);
+            dropped++;
+        }
+
+        if (dropped > 0) logger.info("Dropped {} empty occurrence partition(s) before {}", dropped, cutoffMonth);
+        return dropped;
+    }
+
+    private void convertToPartitioned() {
+        jdbcTemplate.execute("lock table " + TABLE + " in access exclusive mode");
+
+        // Free the names the new parent takes over
+        jdbcTemplate.execute("alter table " + TABLE + " rename to " + TABLE + "_unpartitioned");
+        jdbcTemplate.execute("""
+                alter table dose_occurrence_unpartitioned
+                rename constraint uk_occurrence_dose_scheduledat to uk_occurrence_dose_scheduledat_unpartitioned
+                """);
+        jdbcTemplate.execute("alter index if exists idx_occurrence_dose_scheduledat rename to idx_occurrence_dose_scheduledat_unpartitioned");
+        jdbcTemplate.execute("alter index if exists idx_occurrence_status_scheduledat rename to idx_occurrence_status_scheduledat_unpartitioned");
+        jdbcTemplate.execute("alter index if exists idx_occurrence_status_instant rename to idx_occurrence_status_instant_unpartitioned");
+
+        // Same columns; identity is replaced by a plain sequence (identity on partitioned tables needs PG 17)
+        jdbcTemplate.execute("""
+                create table dose_occurrence (like dose_occurrence_unpartitioned including defaults)
+                partition by range (scheduled_at)
+                """);
+        jdbcTemplate.execute("create sequence if not exists dose_occurrence_pid_seq owned by dose_occurrence.id");
+        jdbcTemplate.execute("""
+                select setval('dose_occurrence_pid_seq',
+                              coalesce((select max(id) from dose_occurrence_unpartitioned), 0) + 1, false)
+                """);
+        jdbcTemplate.execute("alter table dose_occurrence alter column id set default nextval('dose_occurrence_pid_seq')");
+
+        jdbcTemplate.execute("alter table dose_occurrence add constraint pk_dose_occurrence primary key (id, scheduled_at)");
+        jdbcTemplate.execute("alter table dose_occurrence add constraint uk_occurrence_dose_scheduledat unique (dose_id, scheduled_at)");
+        jdbcTemplate.execute("alter table dose_occurrence add constraint fk_occurrence_dose foreign key (dose_id) references dose (id)");
+        jdbcTemplate.execute("create index idx_occurrence_dose_scheduledat on dose_occurrence (dose_id, scheduled_at)");
+        jdbcTemplate.execute("create index idx_occurrence_status_scheduledat on dose_occurrence (status, scheduled_at)");
+        jdbcTemplate.execute("create index idx_occurrence_status_instant on dose_occurrence (status, scheduled_instant)");
+
+        jdbcTemplate.execute("create table dose_occurrence_default partition of dose_occurrence default");
+
+        // Monthly partitions for the existing data, then for the months ahead
+        LocalDateTime min = jdbcTemplate.queryForObject(
+                "select min(scheduled_at) from dose_occurrence_unpartitioned", LocalDateTime.class);
+        YearMonth first = (min == null) ? YearMonth.now() : YearMonth.from(min);
+        LocalDateTime max = jdbcTemplate.queryForObject(
+                "select max(scheduled_at) from dose_occurrence_unpartitioned", LocalDateTime.class);
+        YearMonth last = (max == null) ? YearMonth.now() : YearMonth.from(max);
+
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+            createMonth(m);
+        }
+
+        int copied = jdbcTemplate.update("insert into dose_occurrence select * from dose_occurrence_unpartitioned");
+        jdbcTemplate.execute("drop table dose_occurrence_unpartitioned");
+
+        logger.info("dose_occurrence converted to monthly partitions ({} row(s), {} .. {})", copied, first, last);
+    }
+
+    /**
+     * Rows of a month without its partition sit in the default partition, which blocks the CREATE:
+     * they are moved out, the partition created, and the rows routed back in, in one transaction.
+     * Any other failure propagates.
+     */
+    private void createMonth(YearMonth month) {
+        String name = PARTITION_PREFIX + month.format(SUFFIX);
+        if (relationExists(name)) return;
+
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        String sql = "create table if not exists " + name + " partition of " + TABLE
+                + " for values from ('" + start.toLocalDate() + "') to ('" + end.toLocalDate() + "')";
+
+        tx.executeWithoutResult(status -> {
+            if (!defaultHoldsRows(start, end)) {
+                jdbcTemplate.execute(sql);
+                return;
+            }
+
+            // No writer may route a row of that month into the default partition meanwhile
+            jdbcTemplate.execute("lock table " + TABLE + " in access exclusive mode");
+            jdbcTemplate.execute("create temp table occurrence_month_move (like " + TABLE + ")");
+            int moved = jdbcTemplate.update("""
+                    with m as (
+                        delete from dose_occurrence_default
+                         where scheduled_at >= ? and scheduled_at < ?
+                        returning *
+                    )
+                    insert into occurrence_month_move select * from m
+                    """, start, end);
+
+            jdbcTemplate.execute(sql);
+            jdbcTemplate.update("insert into " + TABLE + " select * from occurrence_month_move");
+            jdbcTemplate.execute("drop table occurrence_month_move");
+
+            logger.info("Moved {} occurrence(s) from the default partition into {}", moved, name);
+        });
+    }
+
+    private boolean defaultHoldsRows(LocalDateTime start, LocalDateTime end) {
+        if (!relationExists(TABLE + "_default")) return false;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from dose_occurrence_default where scheduled_at >= ? and scheduled_at < ?)",
+                Boolean.class, start, end));
+    }
+
+    private boolean relationExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name));
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("""
+                select c.relname
+                  from pg_inherits i
+                  join pg_class c on c.oid = i.inhrelid
+                 where i.inhparent = to_regclass('dose_occurrence')
+                """, String.class);
+    }
+
+    private YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) return null; // default partition
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private boolean tableExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select to_regclass('dose_occurrence') is not null", Boolean.class));
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass('dose_occurrence'))",
+                Boolean.class));
+    }
+}
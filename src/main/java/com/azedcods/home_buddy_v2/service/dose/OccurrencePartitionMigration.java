@@ -0,0 +1,40 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off command converting dose_occurrence to monthly partitions, then exiting:
+ *
+ *   java -jar home_buddy_v2.jar --homebuddy.occurrences.migrate-to-partitions=true
+ *
+ * Runs before the startup listeners that read occurrences. Regular instances never convert.
+ */
+@Component
+@ConditionalOnProperty(name = "homebuddy.occurrences.migrate-to-partitions", havingValue = "true")
+public class OccurrencePartitionMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrencePartitionMigration.class);
+
+    private final OccurrencePartitionMaintainer partitionMaintainer;
+    private final ConfigurableApplicationContext context;
+
+    public OccurrencePartitionMigration(OccurrencePartitionMaintainer partitionMaintainer, ConfigurableApplicationContext context) {
+        this.partitionMaintainer = partitionMaintainer;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!partitionMaintainer.migrateToPartitioned()) {
+            logger.info("dose_occurrence is missing or already partitioned: nothing to migrate");
+        }
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,249 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
+import com.azedcods.home_buddy_v2.repository.dose.DoseOccurrenceRepository;
+import com.azedcods.home_buddy_v2.repository.dose.TransitionCandidate;
+import com.azedcods.home_buddy_v2.service.dose.AdherenceService.TerminalOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * In-process deadline queue for occurrence status transitions.
+ *
+ * Instead of sweeping the whole table with bulk UPDATEs, we keep every pending
+ * SCHEDULED→DUE (at the scheduled instant) and DUE→MISSED (24h later) deadline in a
+ * priority queue and flip only the rows whose deadline passed, by id, in small batches.
+ *
+ * Deadlines are absolute instants (scheduled_instant): users in every time zone share one queue.
+ *
+ * - Seeded from the DB on startup, topped up with newly generated rows, reseeded periodically
+ * - One live deadline per (row, target): re-tracking a row at a new instant supersedes the queued one
+ * - Flips are conditional on the current status and on the row's own deadline having passed: an entry
+ *   left stale by a moved instant (time zone change), here or in another node's queue, is a no-op
+ * - Flips run in their own transaction: a caller rolling back never loses a transition
+ * - MISSED flips feed the adherence rollups in that same transaction
+ */
+@Service
+public class OccurrenceTransitionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccurrenceTransitionScheduler.class);
+
+    private static final int FLIP_BATCH_SIZE = 200;
+
+    // How far ahead SCHEDULED rows are loaded into the queue
+    private static final Duration LOOKAHEAD = Duration.ofHours(2);
+
+    // Conditional DUE→MISSED returning what actually flipped (for the adherence rollups)
+    private static final String MARK_MISSED_SQL = """
+            with flipped as (
+                update dose_occurrence o
+                   set status = 'MISSED',
+                       note = ?
+                 where o.id = any(?)
+                   and o.status = 'DUE'
+                   and o.taken_at is null
+                   and o.scheduled_instant + interval '%d seconds' <= ?
+                returning o.dose_id, o.scheduled_at
+            )
+            select d.user_id, f.dose_id, d.medication_id, f.scheduled_at
+              from flipped f
+              join dose d on d.id = f.dose_id
+            """.formatted(DoseOccurrence.MISSED_AFTER.toSeconds());
+
+    private final DoseOccurrenceRepository occRepo;
+    private final OccurrenceVersionService versionService;
+    private final AdherenceService adherenceService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparing(Deadline::at));
+    // Row id -> deadline of its live queue entry; queued entries with another deadline are superseded
+    private final Map<Long, Instant> pendingDue = new HashMap<>();
+    private final Map<Long, Instant> pendingMissed = new HashMap<>();
+
+    public OccurrenceTransitionScheduler(
+            DoseOccurrenceRepository occRepo,
+            OccurrenceVersionService versionService,
+            AdherenceService adherenceService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager txManager
+    ) {
+        this.occRepo = occRepo;
+        this.versionService = versionService;
+        this.adherenceService = adherenceService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /** Rebuild the queue from the DB (startup + periodic drift correction). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reseed() {
+        List<TransitionCandidate> rows = occRepo.findTransitionCandidates(Instant.now().plus(LOOKAHEAD));
+
+        synchronized (this) {
+            queue.clear();
+            pendingDue.clear();
+            pendingMissed.clear();
+            for (TransitionCandidate c : rows) {
+                track(c.getId(), c.getScheduledInstant(), c.getStatus());
+            }
+        }
+
+        logger.info("Transition scheduler seeded with {} pending deadline(s)", rows.size());
+    }
+
+    /** Pick up SCHEDULED rows that entered the lookahead (or were generated) since the last load. */
+    public void topUp() {
+        List<TransitionCandidate> rows = occRepo.findScheduledUntil(Instant.now().plus(LOOKAHEAD));
+
+        synchronized (this) {
+            for (TransitionCandidate c : rows) {
+                track(c.getId(), c.getScheduledInstant(), c.getStatus());
+            }
+        }
+    }
+
+    /** Register a freshly created / updated occurrence. Unknown or terminal statuses are ignored. */
+    public synchronized void track(Long id, Instant scheduledAt, OccurrenceStatus status) {
+        if (id == null || scheduledAt == null || status == null) return;
+
+        if (status == OccurrenceStatus.SCHEDULED) {
+            enqueue(pendingDue, new Deadline(scheduledAt, id, OccurrenceStatus.DUE, scheduledAt));
+        } else if (status == OccurrenceStatus.DUE) {
+            enqueue(pendingMissed, new Deadline(scheduledAt.plus(DoseOccurrence.MISSED_AFTER), id, OccurrenceStatus.MISSED, scheduledAt));
+        }
+    }
+
+    /**
+     * A row's instant moved (time zone change, committed): replace its deadlines. A SCHEDULED row now
+     * past the lookahead leaves the queue until {@link #topUp} reaches it.
+     */
+    public synchronized void retrack(Long id, Instant scheduledAt, OccurrenceStatus status) {
+        if (id == null) return;
+        pendingDue.remove(id);
+        pendingMissed.remove(id);
+
+        if (status == OccurrenceStatus.SCHEDULED && scheduledAt != null
+                && scheduledAt.isAfter(Instant.now().plus(LOOKAHEAD))) return;
+        track(id, scheduledAt, status);
+    }
+
+    private void enqueue(Map<Long, Instant> pending, Deadline d) {
+        Instant previous = pending.put(d.occurrenceId(), d.at());
+        if (!d.at().equals(previous)) queue.add(d);
+    }
+
+    /**
+     * Flip every row whose deadline is at or before {@code now}.
+     * Cheap when nothing is due (a single peek).
+     *
+     * @return number of rows actually updated
+     */
+    public int advance(Instant now) {
+        if (now == null) now = Instant.now();
+
+        int flipped = 0;
+        while (true) {
+            List<Deadline> batch = pollExpired(now);
+            if (batch.isEmpty()) return flipped;
+
+            final Instant at = now;
+            try {
+                Integer updated = tx.execute(status -> flip(batch, at));
+                flipped += (updated == null ? 0 : updated);
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            }
+
+            // DUE rows now wait for their MISSED deadline (may already be past: next loop picks it up)
+            for (Deadline d : batch) {
+                if (d.target() == OccurrenceStatus.DUE) track(d.occurrenceId(), d.scheduledAt(), OccurrenceStatus.DUE);
+            }
+        }
+    }
+
+    // Live deadlines (superseded queue entries not counted)
+    public synchronized int pendingCount() {
+        return pendingDue.size() + pendingMissed.size();
+    }
+
+    private int flip(List<Deadline> batch, Instant now) {
+        List<Long> toDue = new ArrayList<>();
+        List<Long> toMissed = new ArrayList<>();
+        for (Deadline d : batch) {
+            (d.target() == OccurrenceStatus.DUE ? toDue : toMissed).add(d.occurrenceId());
+        }
+
+        int updated = 0;
+        if (!toDue.isEmpty()) updated += occRepo.markDueByIds(toDue, "[AUTO] Status → DUE at " + now, now);
+        if (!toMissed.isEmpty()) updated += markMissed(toMissed, "[AUTO] Status → MISSED at " + now, now);
+
+        if (updated > 0) {
+            List<Long> ids = new ArrayList<>(toDue);
+            ids.addAll(toMissed);
+            versionService.bumpOwnersOf(ids);
+        }
+        return updated;
+    }
+
+    private int markMissed(List<Long> ids, String note, Instant now) {
+        List<TerminalOutcome> missed = jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(MARK_MISSED_SQL);
+            ps.setString(1, note);
+            ps.setArray(2, con.createArrayOf("bigint", ids.toArray()));
+            ps.setObject(3, OffsetDateTime.ofInstant(now, ZoneOffset.UTC));
+            return ps;
+        }, (rs, i) -> new TerminalOutcome(
+                rs.getLong("user_id"),
+                rs.getLong("dose_id"),
+                rs.getObject("medication_id", Long.class),
+                rs.getObject("scheduled_at", LocalDateTime.class),
+                OccurrenceStatus.MISSED,
+                null
+        ));
+
+        adherenceService.record(missed);
+        return missed.size();
+    }
+
+    synchronized List<Deadline> pollExpired(Instant now) {
+        List<Deadline> out = new ArrayList<>();
+        while (out.size() < FLIP_BATCH_SIZE) {
+            Deadline head = queue.peek();
+            if (head == null || head.at().isAfter(now)) break;
+
+            queue.poll();
+            // Superseded by a later track / retrack, or untracked: dropped
+            if (!(head.target() == OccurrenceStatus.DUE ? pendingDue : pendingMissed).remove(head.occurrenceId(), head.at())) continue;
+            out.add(head);
+        }
+        return out;
+    }
+
+    synchronized void requeue(List<Deadline> batch) {
+        for (Deadline d : batch) {
+            // A deadline tracked meanwhile for the same row wins
+            boolean added = (d.target() == OccurrenceStatus.DUE ? pendingDue : pendingMissed).putIfAbsent(d.occurrenceId(), d.at()) == null;
+            if (added) queue.add(d);
+        }
+    }
+
+    record Deadline(Instant at, Long occurrenceId, OccurrenceStatus target, Instant scheduledAt) {}
+}
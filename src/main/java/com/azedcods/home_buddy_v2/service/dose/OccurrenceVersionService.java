@@ -0,0 +1,48 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.repository.dose.OccurrenceUserVersionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Per-user occurrence window versions (occurrence_user_version).
+ *
+ * Bumps join the caller's transaction, so a version is never visible before the change it stands for.
+ * Users are bumped in ascending id order to keep row-lock order stable across writers.
+ */
+@Service
+public class OccurrenceVersionService {
+
+    private final OccurrenceUserVersionRepository versionRepo;
+
+    public OccurrenceVersionService(OccurrenceUserVersionRepository versionRepo) {
+        this.versionRepo = versionRepo;
+    }
+
+    @Transactional(readOnly = true)
+    public long current(Long userId) {
+        return versionRepo.findVersion(userId).orElse(0L);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bump(Long userId) {
+        if (userId == null) return;
+        versionRepo.bumpUsers(new Long[]{userId});
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bumpUsers(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return;
+        versionRepo.bumpUsers(new TreeSet<>(userIds).toArray(Long[]::new));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bumpOwnersOf(Collection<Long> occurrenceIds) {
+        if (occurrenceIds == null || occurrenceIds.isEmpty()) return;
+        versionRepo.bumpOwnersOf(occurrenceIds);
+    }
+}
@@ -0,0 +1,95 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.payload.DoseDtos;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Side-effect-free capacity simulation of a proposed dose against the user's other doses.
+ *
+ * Everything is expanded in memory from compiled schedules (cache hits for existing doses):
+ * one counting pass over the window, then a second pass limited to the conflicting days
+ * to list what lands there. Nothing is written.
+ */
+@Service
+public class SchedulePreviewService {
+
+    private final DoseScheduleResolver scheduleResolver;
+
+    public SchedulePreviewService(DoseScheduleResolver scheduleResolver) {
+        this.scheduleResolver = scheduleResolver;
+    }
+
+    /**
+     * @param replacedDoseId dose the proposal replaces (update preview), or {@code null} (create preview)
+     */
+    @Transactional(readOnly = true)
+    public DoseDtos.PreviewResponse simulate(
+            Long userId,
+            Long replacedDoseId,
+            CompiledSchedule proposed,
+            LocalDate from,
+            LocalDate to
+    ) {
+        int maxPerDay = OccurrenceCapacityPlanner.MAX_OCCURRENCES_PER_DAY;
+
+        List<CompiledSchedule> others = new ArrayList<>();
+        for (CompiledSchedule cs : scheduleResolver.forUser(userId)) {
+            if (!Objects.equals(cs.getDoseId(), replacedDoseId)) others.add(cs);
+        }
+
+        LocalDateTime windowFrom = from.atStartOfDay();
+        LocalDateTime windowTo = to.atTime(LocalTime.MAX);
+
+        // 1) counting pass: [existing, proposed] per day
+        Map<LocalDate, int[]> counts = new HashMap<>();
+        for (CompiledSchedule cs : others) {
+            count(cs, windowFrom, windowTo, counts, 0);
+        }
+        count(proposed, windowFrom, windowTo, counts, 1);
+
+        List<DoseDtos.PreviewDay> days = new ArrayList<>();
+        List<LocalDate> overloaded = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            int[] c = counts.getOrDefault(d, new int[2]);
+            int total = c[0] + c[1];
+            days.add(new DoseDtos.PreviewDay(d, c[0], c[1], total));
+            if (total > maxPerDay) overloaded.add(d);
+        }
+
+        // 2) what lands on each overloaded day
+        List<DoseDtos.PreviewConflict> conflicts = new ArrayList<>();
+        for (LocalDate d : overloaded) {
+            List<DoseDtos.PreviewSlot> slots = new ArrayList<>();
+            for (CompiledSchedule cs : others) {
+                collect(cs, d, false, slots);
+            }
+            collect(proposed, d, true, slots);
+            slots.sort(Comparator.comparing(DoseDtos.PreviewSlot::time));
+
+            conflicts.add(new DoseDtos.PreviewConflict(d, slots.size(), slots.size() - maxPerDay, slots));
+        }
+
+        return new DoseDtos.PreviewResponse(from, to, maxPerDay, conflicts.isEmpty(), days, conflicts);
+    }
+
+    private void count(CompiledSchedule cs, LocalDateTime from, LocalDateTime to, Map<LocalDate, int[]> counts, int slot) {
+        Iterator<LocalDateTime> it = cs.iterate(from, to);
+        while (it.hasNext()) {
+            counts.computeIfAbsent(it.next().toLocalDate(), k -> new int[2])[slot]++;
+        }
+    }
+
+    private void collect(CompiledSchedule cs, LocalDate day, boolean proposed, List<DoseDtos.PreviewSlot> out) {
+        Iterator<LocalDateTime> it = cs.iterate(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+        while (it.hasNext()) {
+            out.add(new DoseDtos.PreviewSlot(cs.getDoseId(), it.next().toLocalTime(), proposed));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.model.auth.UserSettings;
+import com.azedcods.home_buddy_v2.model.dose.ZonedDayOffsets;
+import com.azedcods.home_buddy_v2.repository.auth.UserSettingsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each user's {@link ZoneId} (from {@link UserSettings#getTimeZone()}), resolved once and cached for a
+ * short TTL.
+ *
+ * Occurrences are scheduled in the user's wall time (scheduled_at); the matching absolute instant
+ * (scheduled_instant) is derived here through the zone's memoized per-day offsets.
+ * Missing or invalid settings fall back to the configured default zone.
+ * {@link #evict} must be called once a time zone change commits; it only reaches this node, other nodes
+ * pick the change up when their entry expires.
+ */
+@Component
+public class UserZoneResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserZoneResolver.class);
+
+    private final UserSettingsRepository settingsRepo;
+    private final ZoneId defaultZone;
+    private final long ttlNanos;
+
+    private final Map<Long, CachedZone> zonesByUser = new ConcurrentHashMap<>();
+    private final Map<ZoneId, ZonedDayOffsets> offsetsByZone = new ConcurrentHashMap<>();
+
+    public UserZoneResolver(
+            UserSettingsRepository settingsRepo,
+            @Value("${homebuddy.time.default-zone:America/Toronto}") String defaultZone,
+            @Value("${homebuddy.time.zone-cache-ttl-seconds:60}") int ttlSeconds
+    ) {
+        this.settingsRepo = settingsRepo;
+        this.defaultZone = ZoneId.of(defaultZone);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+    }
+
+    public ZoneId zoneOf(Long userId) {
+        ZoneId hit = cached(userId);
+        if (hit != null) return hit;
+
+        ZoneId zone = resolve(userId);
+        cache(userId, zone);
+        return zone;
+    }
+
+    /** The zone as currently stored, bypassing (and not filling) the cache: for use inside a settings change. */
+    public ZoneId resolve(Long userId) {
+        return settingsRepo.findByUserId(userId)
+                .map(s -> parse(s.getTimeZone(), userId))
+                .orElse(defaultZone);
+    }
+
+    /** Resolve a whole user partition with one query (users already cached are skipped). */
+    public Map<Long, ZoneId> zonesOf(Collection<Long> userIds) {
+        Map<Long, ZoneId> out = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            ZoneId hit = cached(userId);
+            if (hit != null) out.put(userId, hit);
+            else missing.add(userId);
+        }
+        if (missing.isEmpty()) return out;
+
+        for (UserSettings s : settingsRepo.findByUserIdIn(missing)) {
+            out.put(s.getUserId(), parse(s.getTimeZone(), s.getUserId()));
+        }
+        for (Long userId : missing) {
+            cache(userId, out.computeIfAbsent(userId, k -> defaultZone));
+        }
+        return out;
+    }
+
+    public ZonedDayOffsets offsetsFor(ZoneId zone) {
+        return offsetsByZone.computeIfAbsent(zone, ZonedDayOffsets::new);
+    }
+
+    /** Absolute instant of a wall time of this user. */
+    public Instant toInstant(Long userId, LocalDateTime local) {
+        return offsetsFor(zoneOf(userId)).toInstant(local);
+    }
+
+    public void evict(Long userId) {
+        zonesByUser.remove(userId);
+    }
+
+    // Every 10 minutes: drop expired entries of users no longer looked up
+    @Scheduled(fixedDelay = 600_000)
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        zonesByUser.values().removeIf(c -> c.expired(now));
+    }
+
+    private ZoneId cached(Long userId) {
+        CachedZone c = zonesByUser.get(userId);
+        return (c == null || c.expired(System.nanoTime())) ? null : c.zone();
+    }
+
+    private void cache(Long userId, ZoneId zone) {
+        zonesByUser.put(userId, new CachedZone(zone, System.nanoTime() + ttlNanos));
+    }
+
+    private ZoneId parse(String timeZone, Long userId) {
+        if (timeZone == null || timeZone.isBlank()) return defaultZone;
+        try {
+            return ZoneId.of(timeZone.trim());
+        } catch (DateTimeException e) {
+            logger.warn("Invalid time zone '{}' for userId={}, using {}", timeZone, userId, defaultZone);
+            return defaultZone;
+        }
+    }
+
+    private record CachedZone(ZoneId zone, long expiresAtNanos) {
+        boolean expired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.config.NotificationSearchFunctions;
+import com.azedcods.home_buddy_v2.model.notif.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * PostgreSQL full-text search over a GIN expression index on the weighted title/message vector.
+ *
+ * - Every word of the query must match, each as a prefix ("med rem" finds "Medication reminder")
+ * - Results are ordered by ts_rank, then newest first; count queries stay unordered
+ * - The 'simple' configuration (no stemming, no stop words) suits short mixed-language texts
+ */
+@Component
+@ConditionalOnProperty(name = "homebuddy.notifications.search", havingValue = "fts", matchIfMissing = true)
+public class FullTextNotificationSearch implements NotificationSearch {
+
+    private static final Logger logger = LoggerFactory.getLogger(FullTextNotificationSearch.class);
+
+    private static final int MAX_TERMS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FullTextNotificationSearch(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Specification<Notification> matching(String q) {
+        String tsQuery = toPrefixQuery(q);
+        if (tsQuery == null) return (root, query, cb) -> cb.conjunction();
+
+        return (root, query, cb) -> {
+            var title = root.<String>get("title");
+            var message = root.<String>get("message");
+            var terms = cb.literal(tsQuery);
+
+            if (query != null && !Long.class.equals(query.getResultType())) {
+                query.orderBy(
+                        cb.desc(cb.function(NotificationSearchFunctions.RANK, Double.class, title, message, terms)),
+                        cb.desc(root.get("createdAt"))
+                );
+            }
+            return cb.isTrue(cb.function(NotificationSearchFunctions.MATCH, Boolean.class, title, message, terms));
+        };
+    }
+
+    @Override
+    public boolean ranks(String q) {
+        return toPrefixQuery(q) != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        try {
+            // An interrupted concurrent build leaves an invalid index that "if not exists" would keep
+            Boolean valid = jdbcTemplate.query("""
+                    select i.indisvalid
+                      from pg_index i
+                      join pg_class c on c.oid = i.indexrelid
+                     where c.relname = 'idx_notification_fts'
+                    """, rs -> rs.next() ? rs.getBoolean(1) : null);
+            if (Boolean.TRUE.equals(valid)) return;
+            if (valid != null) jdbcTemplate.execute("drop index concurrently if exists idx_notification_fts");
+
+            // Concurrently: the table stays writable while the index builds (runs in autocommit)
+            jdbcTemplate.execute("create index concurrently idx_notification_fts on notification using gin ("
+                    + NotificationSearchFunctions.VECTOR_SQL.formatted("title", "message") + ")");
+            logger.info("Notification full-text index created");
+        } catch (RuntimeException e) {
+            // Search still answers, by scanning, until the next start
+            logger.warn("Could not create the notification full-text index", e);
+        }
+    }
+
+    /** "Med, rem!" → "med:* & rem:*"; only letters and digits survive, so input can never break the tsquery syntax. */
+    static String toPrefixQuery(String q) {
+        if (q == null || q.isBlank()) return null;
+
+        String terms = Arrays.stream(q.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .limit(MAX_TERMS)
+                .map(t -> t + ":*")
+                .collect(Collectors.joining(" & "));
+        return terms.isEmpty() ? null : terms;
+    }
+}
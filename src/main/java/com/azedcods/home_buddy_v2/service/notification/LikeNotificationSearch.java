@@ -0,0 +1,22 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.model.notif.Notification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+// Substring match, no index: for databases without PostgreSQL full text
+@Component
+@ConditionalOnProperty(name = "homebuddy.notifications.search", havingValue = "like")
+public class LikeNotificationSearch implements NotificationSearch {
+
+    @Override
+    public Specification<Notification> matching(String q) {
+        return NotificationSpecs.search(q);
+    }
+
+    @Override
+    public boolean ranks(String q) {
+        return false;
+    }
+}
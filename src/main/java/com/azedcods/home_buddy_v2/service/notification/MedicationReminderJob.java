@@ -3,20 +3,18 @@ package com.azedcods.home_buddy_v2.service.notification;
 import com.azedcods.home_buddy_v2.enums.*;
 import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
 import com.azedcods.home_buddy_v2.repository.dose.DoseOccurrenceRepository;
-import com.azedcods.home_buddy_v2.service.dose.DoseOccurrenceService;
 import com.azedcods.home_buddy_v2.service.notification.NotificationEngine;
 import jakarta.transaction.Transactional;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.util.List;
 
 @Service
 public class MedicationReminderJob {
 
-    private final DoseOccurrenceService doseOccurrenceService;
     private final DoseOccurrenceRepository occRepo;
     private final NotificationEngine notificationEngine;
 
@@ -26,11 +24,9 @@ public class MedicationReminderJob {
     private static final int CONFIRM_AFTER_MIN = 15;    // ask confirmation after 15 minutes overdue
 
     public MedicationReminderJob(
-            DoseOccurrenceService doseOccurrenceService,
             DoseOccurrenceRepository occRepo,
             NotificationEngine notificationEngine
     ) {
-        this.doseOccurrenceService = doseOccurrenceService;
         this.occRepo = occRepo;
         this.notificationEngine = notificationEngine;
     }
@@ -38,21 +34,20 @@ public class MedicationReminderJob {
     @Scheduled(fixedRate = 60_000)
     @Transactional
     public void tickMedicationNotifications() {
-        LocalDateTime now = LocalDateTime.now();
-
-        // Keep DUE/MISSED statuses current (you already have this logic)
-        doseOccurrenceService.refreshDueAndMissed(now);
+        // Instants: one scan covers the users of every time zone
+        Instant now = Instant.now();
 
+        // DUE/MISSED statuses are kept current by the transition scheduler (every 10 seconds)
         emitDoseDue(now);
         emitConfirmRequired(now);
         emitDoseMissed(now);
     }
 
-    private void emitDoseDue(LocalDateTime now) {
-        LocalDateTime from = now.minusMinutes(DUE_LOOKBACK_MIN);
-        LocalDateTime to = now.plusMinutes(DUE_LOOKAHEAD_MIN);
+    private void emitDoseDue(Instant now) {
+        Instant from = now.minus(Duration.ofMinutes(DUE_LOOKBACK_MIN));
+        Instant to = now.plus(Duration.ofMinutes(DUE_LOOKAHEAD_MIN));
 
-        List<DoseOccurrence> due = occRepo.findByStatusAndTakenAtIsNullAndScheduledAtBetween(
+        List<DoseOccurrence> due = occRepo.findByStatusAndTakenAtIsNullAndScheduledInstantBetween(
                 OccurrenceStatus.DUE, from, to
         );
 
@@ -74,11 +69,11 @@ public class MedicationReminderJob {
         }
     }
 
-    private void emitConfirmRequired(LocalDateTime now) {
+    private void emitConfirmRequired(Instant now) {
         // Anything still DUE and overdue by 15 minutes
-        LocalDateTime cutoff = now.minusMinutes(CONFIRM_AFTER_MIN);
+        Instant cutoff = now.minus(Duration.ofMinutes(CONFIRM_AFTER_MIN));
 
-        List<DoseOccurrence> overdue = occRepo.findByStatusAndTakenAtIsNullAndScheduledAtLessThanEqual(
+        List<DoseOccurrence> overdue = occRepo.findByStatusAndTakenAtIsNullAndScheduledInstantLessThanEqual(
                 OccurrenceStatus.DUE, cutoff
         );
 
@@ -100,13 +95,13 @@ public class MedicationReminderJob {
         }
     }
 
-    private void emitDoseMissed(LocalDateTime now) {
+    private void emitDoseMissed(Instant now) {
         // Your system marks MISSED after 24 hours. Emit it once when it becomes MISSED.
         // We'll scan a reasonable window (last 48h scheduled) to avoid touching ancient history.
-        LocalDateTime from = now.minusHours(48);
-        LocalDateTime to = now;
+        Instant from = now.minus(Duration.ofHours(48));
+        Instant to = now;
 
-        List<DoseOccurrence> missed = occRepo.findByStatusAndTakenAtIsNullAndScheduledAtBetween(
+        List<DoseOccurrence> missed = occRepo.findByStatusAndTakenAtIsNullAndScheduledInstantBetween(
                 OccurrenceStatus.MISSED, from, to
         );
 
@@ -0,0 +1,23 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.payload.NotificationDtos;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Published inside the transaction that created notifications or moved unread counts;
+ * listeners bound to AFTER_COMMIT only ever see committed changes.
+ */
+public record NotificationChangedEvent(
+        List<NotificationDtos.Response> created,
+        Map<Long, Long> unreadDeltaByUser
+) {
+    public static NotificationChangedEvent created(List<NotificationDtos.Response> created) {
+        return new NotificationChangedEvent(created, Map.of());
+    }
+
+    public static NotificationChangedEvent unread(Map<Long, Long> unreadDeltaByUser) {
+        return new NotificationChangedEvent(List.of(), unreadDeltaByUser);
+    }
+}
@@ -0,0 +1,152 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last creation instant of each (recipient, notificationKey), kept in memory so that emits still in
+ * cooldown are dropped before they reach the outbox.
+ *
+ * - Entries are facts about committed notifications (written by the dispatcher after its commit, or
+ *   warm-loaded from the table): a hit is safe to trust, a miss just goes the DB way (outbox + dispatcher
+ *   dedupe), so nodes never need to agree on their contents
+ * - Deleting a notification is the only thing that makes a fact stale: it is logged in
+ *   notification_cooldown_eviction, which every node tails by creation time with a lookback (ids commit
+ *   out of order; re-applying an eviction only costs a miss)
+ * - Bounded: entries older than the retention are useless (no cooldown is that long) and are purged,
+ *   a full index is reset rather than evicted entry by entry
+ */
+@Component
+public class NotificationCooldownIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCooldownIndex.class);
+
+    private static final String WARM_SQL = """
+            select recipient_user_id, notification_key, max(created_at) as last_at
+              from notification
+             where notification_key is not null
+               and created_at >= ?
+             group by recipient_user_id, notification_key
+            """;
+
+    private static final String EVICTIONS_SQL = """
+            select recipient_user_id, notification_key
+              from notification_cooldown_eviction
+             where created_at >= ?
+            """;
+
+    private static final String LOG_EVICTION_SQL = """
+            insert into notification_cooldown_eviction (recipient_user_id, notification_key, created_at)
+            values (?, ?, ?)
+            """;
+
+    private final ConcurrentHashMap<CooldownKey, Instant> lastEmit = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final int maxEntries;
+    private final Duration evictionLookback;
+
+    // Start of the last eviction poll; null until warmed up (before that every lookup misses anyway)
+    private volatile Instant lastPollAt;
+
+    public NotificationCooldownIndex(
+            JdbcTemplate jdbcTemplate,
+            @Value("${homebuddy.notifications.cooldown-index-retention-hours:24}") int retentionHours,
+            @Value("${homebuddy.notifications.cooldown-index-max-entries:100000}") int maxEntries,
+            @Value("${homebuddy.notifications.cooldown-eviction-lookback-seconds:300}") int evictionLookbackSeconds
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = Duration.ofHours(Math.max(1, retentionHours));
+        this.maxEntries = Math.max(1_000, maxEntries);
+        // Covers the longest deleting transaction plus clock skew between nodes
+        this.evictionLookback = Duration.ofSeconds(Math.max(30, evictionLookbackSeconds));
+    }
+
+    /** True only when a notification with this key is known to exist within {@code cooldown} of {@code now}. */
+    public boolean isCoolingDown(Long recipientUserId, String key, Duration cooldown, Instant now) {
+        if (recipientUserId == null || key == null) return false;
+        Instant last = lastEmit.get(new CooldownKey(recipientUserId, key));
+        return last != null && !last.isBefore(now.minus(cooldown));
+    }
+
+    /** A notification with this key exists, created at {@code at}. Call after its transaction committed. */
+    public void record(Long recipientUserId, String key, Instant at) {
+        if (recipientUserId == null || key == null || at == null) return;
+
+        if (lastEmit.size() >= maxEntries) {
+            purgeExpired();
+            if (lastEmit.size() >= maxEntries) lastEmit.clear();
+        }
+        lastEmit.merge(new CooldownKey(recipientUserId, key), at, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /** Forget a (recipient, key) on every node. Joins the caller's transaction (the log row commits with the delete). */
+    public void evictEverywhere(Long recipientUserId, String key) {
+        if (recipientUserId == null || key == null) return;
+        lastEmit.remove(new CooldownKey(recipientUserId, key));
+        jdbcTemplate.update(LOG_EVICTION_SQL, recipientUserId, key, OffsetDateTime.now(ZoneOffset.UTC));
+    }
+
+    /** Keys created before this cannot be in any node's index: deleting them needs no eviction log row. */
+    public Instant horizon() {
+        return Instant.now().minus(retention);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Instant startedAt = Instant.now();
+
+        Instant since = Instant.now().minus(retention);
+        int[] loaded = {0};
+        jdbcTemplate.query(WARM_SQL, (RowCallbackHandler) rs -> {
+            record(rs.getLong("recipient_user_id"), rs.getString("notification_key"),
+                    rs.getObject("last_at", OffsetDateTime.class).toInstant());
+            loaded[0]++;
+        }, OffsetDateTime.ofInstant(since, ZoneOffset.UTC));
+
+        lastPollAt = startedAt;
+        logger.info("Notification cooldown index warmed: {} key(s) since {}", loaded[0], since);
+    }
+
+    // Every 5 seconds: apply deletions made on any node
+    @Scheduled(fixedDelay = 5_000)
+    public void applyEvictions() {
+        Instant previous = lastPollAt;
+        if (previous == null) return;
+
+        Instant startedAt = Instant.now();
+        jdbcTemplate.query(EVICTIONS_SQL, (RowCallbackHandler) rs ->
+                lastEmit.remove(new CooldownKey(rs.getLong("recipient_user_id"), rs.getString("notification_key"))),
+                OffsetDateTime.ofInstant(previous.minus(evictionLookback), ZoneOffset.UTC));
+        lastPollAt = startedAt;
+    }
+
+    // Every hour: drop expired entries and the eviction log rows no index can still need
+    @Scheduled(cron = "0 20 * * * *")
+    public void purge() {
+        purgeExpired();
+        jdbcTemplate.update("delete from notification_cooldown_eviction where created_at < ?",
+                OffsetDateTime.ofInstant(Instant.now().minus(retention), ZoneOffset.UTC));
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        lastEmit.values().removeIf(at -> at.isBefore(cutoff));
+    }
+
+    private record CooldownKey(long recipientUserId, String key) {}
+}
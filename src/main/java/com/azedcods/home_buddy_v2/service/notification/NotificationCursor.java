@@ -0,0 +1,20 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.util.KeysetCursorCodec;
+
+import java.time.Instant;
+
+/**
+ * Keyset position in a (createdAt desc, id desc) notification listing.
+ * Encoded as an opaque URL-safe token so clients never build it themselves.
+ */
+public record NotificationCursor(Instant createdAt, Long id) {
+
+    public String encode() {
+        return KeysetCursorCodec.encode(createdAt, id);
+    }
+
+    public static NotificationCursor decode(String token) {
+        return KeysetCursorCodec.decode(token, Instant::parse, NotificationCursor::new);
+    }
+}
@@ -1,110 +1,85 @@
 package com.azedcods.home_buddy_v2.service.notification;
 
+import com.azedcods.home_buddy_v2.config.NotificationCoalescingProperties;
 import com.azedcods.home_buddy_v2.enums.*;
-import com.azedcods.home_buddy_v2.model.auth.User;
-import com.azedcods.home_buddy_v2.model.notif.Notification;
-import com.azedcods.home_buddy_v2.repository.notif.NotificationRepository;
-import com.azedcods.home_buddy_v2.repository.auth.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
-
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Entry point for notifications. {@link #emit} only appends to notification_outbox inside the caller's
+ * transaction (one insert, no lookups); {@link NotificationOutboxDispatcher} later drains the outbox in
+ * batches and applies user checks, cooldown dedupe, burst coalescing and insert.
+ */
 @Service
 @RequiredArgsConstructor
 public class NotificationEngine {
 
-    private static final int MAX_NOTIFICATIONS_PER_USER = 500;
+    static final Duration DEFAULT_COOLDOWN = Duration.ofMinutes(10);
+
+    private static final String APPEND_SQL = """
+            insert into notification_outbox
+                   (recipient_user_id, actor_user_id, rule, notification_key, type, severity, title, message,
+                    source_module, action_url, related_entity_type, related_entity_id, cooldown_seconds,
+                    coalesce_until, created_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
 
-    private final NotificationRepository notificationRepo;
-    private final UserRepository userRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationCooldownIndex cooldownIndex;
+    private final NotificationCoalescingProperties coalescing;
 
     /**
-     * Emit a notification with dedupe/cooldown.
-     * If another notification with the same (userId + key) was created within cooldown, it will be skipped.
-     *
-     * @return created Notification, or empty if skipped due to cooldown.
+     * Queue a notification with dedupe/cooldown.
+     * If another notification with the same (userId + key) was created within cooldown of this emit,
+     * the dispatcher skips it. Rolled back with the caller's transaction.
      */
     @Transactional
-    public Optional<Notification> emit(EmitRequest req) {
-        if (req == null) return Optional.empty();
-        if (req.recipientUserId() == null) return Optional.empty();
-        if (req.rule() == null) return Optional.empty();
-        if (req.type() == null) return Optional.empty();
-        if (req.severity() == null) return Optional.empty();
-
-        User recipient = userRepo.findById(req.recipientUserId())
-                .orElseThrow(() -> new IllegalArgumentException("Recipient user not found: " + req.recipientUserId()));
-
-        User actor = null;
-        if (req.actorUserId() != null) {
-            actor = userRepo.findById(req.actorUserId())
-                    .orElseThrow(() -> new IllegalArgumentException("Actor user not found: " + req.actorUserId()));
-        }
-
+    public void emit(EmitRequest req) {
+        if (req == null) return;
+        if (req.recipientUserId() == null) return;
+        if (req.rule() == null) return;
+        if (req.type() == null) return;
+        if (req.severity() == null) return;
+
+        Duration cd = req.cooldown() != null ? req.cooldown() : DEFAULT_COOLDOWN;
         String key = safe(req.notificationKey(), 200, null);
 
-        // DEDUPE: if key exists, enforce cooldown
-        if (key != null && !key.isBlank()) {
-            Duration cd = req.cooldown() != null ? req.cooldown() : Duration.ofMinutes(10);
-            Instant since = Instant.now().minus(cd);
-
-            Optional<Notification> recent =
-                    notificationRepo.findTopByRecipientUser_UserIdAndNotificationKeyAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(
-                            recipient.getUserId(),
-                            key,
-                            since
-                    );
-
-            if (recent.isPresent()) {
-                return Optional.empty(); // skipped
-            }
-        }
-
-        Notification n = new Notification();
-        n.setRecipientUser(recipient);
-        n.setActorUser(actor);
-
-        n.setRule(req.rule());
-        n.setNotificationKey(key);
-
-        n.setType(req.type());
-        n.setSeverity(req.severity());
-
-        n.setTitle(safe(req.title(), 180, "Notification"));
-        n.setMessage(safe(req.message(), 2000, ""));
-
-        n.setSourceModule(safe(req.sourceModule(), 60, null));
-        n.setActionUrl(safe(req.actionUrl(), 300, null));
-
-        n.setRelatedEntityType(safe(req.relatedEntityType(), 60, null));
-        n.setRelatedEntityId(safe(req.relatedEntityId(), 60, null));
-
-        notificationRepo.save(n);
-        pruneOldestForUser(recipient.getUserId());
-        return Optional.of(n);
+        // Most keyed emits are repeats: drop them here when the index knows, else the dispatcher checks the DB
+        Instant now = Instant.now();
+        if (cooldownIndex.isCoolingDown(req.recipientUserId(), key, cd, now)) return;
+
+        // Coalesced rule: held back for its window, then delivered with its siblings as one digest
+        Duration window = coalescing.windowOf(req.rule());
+        OffsetDateTime coalesceUntil = (window == null) ? null : OffsetDateTime.ofInstant(now.plus(window), ZoneOffset.UTC);
+
+        jdbcTemplate.update(APPEND_SQL,
+                req.recipientUserId(),
+                req.actorUserId(),
+                req.rule().name(),
+                key,
+                req.type().name(),
+                req.severity().name(),
+                safe(req.title(), 180, "Notification"),
+                safe(req.message(), 2000, ""),
+                safe(req.sourceModule(), 60, null),
+                safe(req.actionUrl(), 300, null),
+                safe(req.relatedEntityType(), 60, null),
+                safe(req.relatedEntityId(), 60, null),
+                Math.max(0, cd.toSeconds()),
+                coalesceUntil,
+                OffsetDateTime.ofInstant(now, ZoneOffset.UTC));
     }
 
-
-    private void pruneOldestForUser(Long userId) {
-        long count = notificationRepo.countByRecipientUser_UserId(userId);
-        if (count <= MAX_NOTIFICATIONS_PER_USER) return;
-
-        int overflow = (int) (count - MAX_NOTIFICATIONS_PER_USER);
-        var oldest = notificationRepo.findByRecipientUser_UserIdOrderByCreatedAtAsc(
-                userId,
-                org.springframework.data.domain.PageRequest.of(0, overflow)
-        );
-        notificationRepo.deleteAll(oldest);
-    }
-
-
     // Convenience overload (common use)
     @Transactional
-    public Optional<Notification> emit(
+    public void emit(
             NotificationRule rule,
             Long recipientUserId,
             String notificationKey,
@@ -115,7 +90,7 @@ public class NotificationEngine {
             String actionUrl,
             Duration cooldown
     ) {
-        return emit(new EmitRequest(
+        emit(new EmitRequest(
                 rule,
                 recipientUserId,
                 null,
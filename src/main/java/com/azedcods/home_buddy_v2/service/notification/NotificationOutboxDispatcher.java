@@ -0,0 +1,391 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.enums.NotificationRule;
+import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
+import com.azedcods.home_buddy_v2.enums.NotificationType;
+import com.azedcods.home_buddy_v2.payload.NotificationDtos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Drains notification_outbox into notification, one batch per transaction.
+ *
+ * - Claim: oldest rows deleted with {@code for update skip locked} (several nodes never claim the same row);
+ *   a failed batch rolls back and is claimed again on the next run
+ * - Recipients / actors checked with one query, cooldown dedupe with one query for the whole batch
+ *   (plus duplicates inside the batch), then one batch insert; retention is NotificationRetentionSweeper's job
+ * - Coalesced rules: a row becomes claimable when its window ends and then takes every pending row of its
+ *   (user, rule) along; the group is delivered as one digest notification
+ */
+@Component
+public class NotificationOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxDispatcher.class);
+
+    private static final String CLAIMED_COLUMNS = """
+            id, recipient_user_id, actor_user_id, rule, notification_key, type, severity, title, message,
+            source_module, action_url, related_entity_type, related_entity_id, cooldown_seconds,
+            coalesce_until, created_at""";
+
+    private static final String CLAIM_SQL = """
+            delete from notification_outbox
+             where id in (select id
+                            from notification_outbox
+                           where coalesce_until is null or coalesce_until <= ?
+                           order by id
+                           limit ?
+                           for update skip locked)
+            returning %s
+            """.formatted(CLAIMED_COLUMNS);
+
+    // The still-waiting siblings of the coalesced groups a batch released
+    private static final String CLAIM_GROUPS_SQL = """
+            delete from notification_outbox
+             where id in (select o.id
+                            from notification_outbox o
+                            join unnest(?, ?) as g(user_id, rule)
+                              on o.recipient_user_id = g.user_id
+                             and o.rule = g.rule
+                           where o.coalesce_until is not null
+                             for update of o skip locked)
+            returning %s
+            """.formatted(CLAIMED_COLUMNS);
+
+    private static final String EXISTING_USERS_SQL = """
+            select u.user_id from users u where u.user_id = any(?)
+            """;
+
+    // Last creation time of each (recipient, key) pair of the batch, within the longest cooldown
+    private static final String LAST_BY_KEY_SQL = """
+            select n.recipient_user_id, n.notification_key, max(n.created_at) as last_at
+              from notification n
+              join unnest(?, ?) as k(user_id, notification_key)
+                on n.recipient_user_id = k.user_id
+               and n.notification_key = k.notification_key
+             where n.created_at >= ?
+             group by n.recipient_user_id, n.notification_key
+            """;
+
+    private static final String INSERT_SQL = """
+            insert into notification
+                   (recipient_user_id, actor_user_id, rule, notification_key, type, severity, title, message,
+                    source_module, action_url, related_entity_type, related_entity_id, occurrence_count, created_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationCooldownIndex cooldownIndex;
+    private final NotificationUnreadCounters unreadCounters;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public NotificationOutboxDispatcher(
+            JdbcTemplate jdbcTemplate,
+            NotificationCooldownIndex cooldownIndex,
+            NotificationUnreadCounters unreadCounters,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager txManager,
+            @Value("${homebuddy.notifications.outbox-batch-size:500}") int batchSize,
+            @Value("${homebuddy.notifications.outbox-max-batches-per-run:20}") int maxBatchesPerRun
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cooldownIndex = cooldownIndex;
+        this.unreadCounters = unreadCounters;
+        this.eventPublisher = eventPublisher;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    // Every 2 seconds: notification delivery lag is bounded by this delay, not by the callers
+    @Scheduled(fixedDelayString = "${homebuddy.notifications.outbox-poll-ms:2000}")
+    public void drain() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<Pending> known = new ArrayList<>();
+            Integer claimed;
+            try {
+                claimed = tx.execute(status -> dispatchBatch(known));
+            } catch (RuntimeException e) {
+                logger.error("Notification outbox batch failed, rows stay queued", e);
+                return;
+            }
+
+            // Committed: these notifications now exist, later emits in their cooldown stop at the engine
+            for (Pending p : known) cooldownIndex.record(p.recipientUserId(), p.notificationKey(), p.createdAt());
+
+            if (claimed == null || claimed < batchSize) return;
+        }
+    }
+
+    /**
+     * @param known filled with the keyed notifications delivered by this batch
+     * @return number of outbox rows claimed (delivered or dropped)
+     */
+    private int dispatchBatch(List<Pending> known) {
+        List<Pending> batch = new ArrayList<>(jdbcTemplate.query(CLAIM_SQL, (rs, i) -> map(rs),
+                OffsetDateTime.now(ZoneOffset.UTC), batchSize));
+        if (batch.isEmpty()) return 0;
+        int claimed = batch.size();
+        batch.addAll(claimGroupSiblings(batch));
+        batch.sort(Comparator.comparingLong(Pending::id)); // "returning" order is unspecified
+
+        Set<Long> users = existingUsers(batch);
+        Map<String, Instant> lastByKey = lastByKey(batch);
+
+        List<Pending> accepted = new ArrayList<>(batch.size());
+        int unknownRecipients = 0;
+        for (Pending p : batch) {
+            if (!users.contains(p.recipientUserId())) {
+                unknownRecipients++;
+                continue;
+            }
+            if (p.notificationKey() != null) {
+                String k = dedupeKey(p.recipientUserId(), p.notificationKey());
+                Instant last = lastByKey.get(k);
+                if (last != null && !last.isBefore(p.createdAt().minusSeconds(p.cooldownSeconds()))) continue;
+                lastByKey.put(k, p.createdAt());
+            }
+            accepted.add(p);
+        }
+        if (unknownRecipients > 0) {
+            logger.warn("Dropped {} queued notification(s) for unknown recipients", unknownRecipients);
+        }
+
+        List<Pending> delivered = coalesce(accepted);
+        for (Pending p : delivered) {
+            if (p.notificationKey() != null) known.add(p);
+        }
+
+        if (!delivered.isEmpty()) {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Pending p = delivered.get(i);
+                            ps.setLong(1, p.recipientUserId());
+                            // A deleted actor no longer blocks the notification: it is just unattributed
+                            ps.setObject(2, actorOf(p, users));
+                            ps.setString(3, p.rule());
+                            ps.setString(4, p.notificationKey());
+                            ps.setString(5, p.type());
+                            ps.setString(6, p.severity());
+                            ps.setString(7, p.title());
+                            ps.setString(8, p.message());
+                            ps.setString(9, p.sourceModule());
+                            ps.setString(10, p.actionUrl());
+                            ps.setString(11, p.relatedEntityType());
+                            ps.setString(12, p.relatedEntityId());
+                            ps.setInt(13, p.occurrences());
+                            ps.setObject(14, OffsetDateTime.ofInstant(p.createdAt(), ZoneOffset.UTC));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return delivered.size();
+                        }
+                    }, keys);
+
+            Map<Long, Long> unreadDelta = new HashMap<>();
+            for (Pending p : delivered) unreadDelta.merge(p.recipientUserId(), 1L, Long::sum);
+            unreadCounters.adjust(unreadDelta);
+
+            // Generated keys come back in batch order
+            List<Map<String, Object>> ids = keys.getKeyList();
+            List<NotificationDtos.Response> created = new ArrayList<>(delivered.size());
+            for (int i = 0; i < delivered.size(); i++) {
+                long id = ((Number) ids.get(i).get("id")).longValue();
+                created.add(toResponse(id, delivered.get(i), actorOf(delivered.get(i), users)));
+            }
+            eventPublisher.publishEvent(NotificationChangedEvent.created(created));
+        }
+
+        logger.debug("Notification outbox: claimed={}, delivered={}", batch.size(), delivered.size());
+        return claimed;
+    }
+
+    private List<Pending> claimGroupSiblings(List<Pending> batch) {
+        Map<String, Pending> groups = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            if (p.coalesced()) groups.putIfAbsent(groupKey(p), p);
+        }
+        if (groups.isEmpty()) return List.of();
+
+        Long[] userIds = groups.values().stream().map(Pending::recipientUserId).toArray(Long[]::new);
+        String[] rules = groups.values().stream().map(Pending::rule).toArray(String[]::new);
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(CLAIM_GROUPS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", userIds));
+            ps.setArray(2, con.createArrayOf("varchar", rules));
+            return ps;
+        }, (rs, i) -> map(rs));
+    }
+
+    /**
+     * One digest per (user, rule) of coalesced emits: content of the latest emit, group size as
+     * occurrence count. Other emits pass through; the result stays in emit (id) order.
+     */
+    static List<Pending> coalesce(List<Pending> accepted) {
+        Map<String, Pending> digests = new LinkedHashMap<>();
+        List<Pending> out = new ArrayList<>(accepted.size());
+        for (Pending p : accepted) {
+            if (!p.coalesced()) {
+                out.add(p);
+                continue;
+            }
+            // Input is sorted by id: the later emit wins the content
+            digests.merge(groupKey(p), p,
+                    (older, newer) -> newer.withOccurrences(older.occurrences() + newer.occurrences()));
+        }
+        if (digests.isEmpty()) return out;
+
+        out.addAll(digests.values());
+        out.sort(Comparator.comparingLong(Pending::id));
+        return out;
+    }
+
+    private static String groupKey(Pending p) {
+        return p.recipientUserId() + "|" + p.rule();
+    }
+
+    private Set<Long> existingUsers(List<Pending> batch) {
+        Set<Long> ids = new HashSet<>();
+        for (Pending p : batch) {
+            ids.add(p.recipientUserId());
+            if (p.actorUserId() != null) ids.add(p.actorUserId());
+        }
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(EXISTING_USERS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getLong(1)));
+    }
+
+    private Map<String, Instant> lastByKey(List<Pending> batch) {
+        Map<String, Pending> keyed = new LinkedHashMap<>();
+        Instant since = null;
+        for (Pending p : batch) {
+            if (p.notificationKey() == null) continue;
+            keyed.putIfAbsent(dedupeKey(p.recipientUserId(), p.notificationKey()), p);
+            Instant s = p.createdAt().minusSeconds(p.cooldownSeconds());
+            if (since == null || s.isBefore(since)) since = s;
+        }
+
+        Map<String, Instant> last = new HashMap<>();
+        if (keyed.isEmpty()) return last;
+
+        Long[] userIds = keyed.values().stream().map(Pending::recipientUserId).toArray(Long[]::new);
+        String[] keys = keyed.values().stream().map(Pending::notificationKey).toArray(String[]::new);
+        Instant from = since;
+
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(LAST_BY_KEY_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", userIds));
+            ps.setArray(2, con.createArrayOf("varchar", keys));
+            ps.setObject(3, OffsetDateTime.ofInstant(from, ZoneOffset.UTC));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            last.put(dedupeKey(rs.getLong("recipient_user_id"), rs.getString("notification_key")),
+                    rs.getObject("last_at", OffsetDateTime.class).toInstant());
+        });
+        return last;
+    }
+
+    private static Long actorOf(Pending p, Set<Long> existingUsers) {
+        return (p.actorUserId() != null && existingUsers.contains(p.actorUserId())) ? p.actorUserId() : null;
+    }
+
+    private static NotificationDtos.Response toResponse(long id, Pending p, Long actorUserId) {
+        return new NotificationDtos.Response(
+                id,
+                p.recipientUserId(),
+                actorUserId,
+                NotificationRule.valueOf(p.rule()),
+                p.notificationKey(),
+                NotificationType.valueOf(p.type()),
+                NotificationSeverity.valueOf(p.severity()),
+                p.title(),
+                p.message(),
+                p.sourceModule(),
+                p.actionUrl(),
+                p.relatedEntityType(),
+                p.relatedEntityId(),
+                p.createdAt(),
+                null,
+                false,
+                p.occurrences()
+        );
+    }
+
+    private static String dedupeKey(Long userId, String key) {
+        return userId + "|" + key;
+    }
+
+    private static Pending map(ResultSet rs) throws SQLException {
+        return new Pending(
+                rs.getLong("id"),
+                rs.getLong("recipient_user_id"),
+                (Long) rs.getObject("actor_user_id"),
+                rs.getString("rule"),
+                rs.getString("notification_key"),
+                rs.getString("type"),
+                rs.getString("severity"),
+                rs.getString("title"),
+                rs.getString("message"),
+                rs.getString("source_module"),
+                rs.getString("action_url"),
+                rs.getString("related_entity_type"),
+                rs.getString("related_entity_id"),
+                rs.getLong("cooldown_seconds"),
+                rs.getObject("coalesce_until") != null,
+                1,
+                rs.getObject("created_at", OffsetDateTime.class).toInstant()
+        );
+    }
+
+    record Pending(
+            long id,
+            Long recipientUserId,
+            Long actorUserId,
+            String rule,
+            String notificationKey,
+            String type,
+            String severity,
+            String title,
+            String message,
+            String sourceModule,
+            String actionUrl,
+            String relatedEntityType,
+            String relatedEntityId,
+            long cooldownSeconds,
+            boolean coalesced,
+            int occurrences,
+            Instant createdAt
+    ) {
+        Pending withOccurrences(int n) {
+            return new Pending(id, recipientUserId, actorUserId, rule, notificationKey, type, severity, title, message,
+                    sourceModule, actionUrl, relatedEntityType, relatedEntityId, cooldownSeconds, coalesced, n, createdAt);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.config.NotificationRetentionProperties;
+import com.azedcods.home_buddy_v2.enums.NotificationRule;
+import com.azedcods.home_buddy_v2.enums.NotificationSeverity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notification retention, off the emit path.
+ *
+ * Users are walked by id in batches; each batch costs one DELETE that ranks the batch's notifications
+ * per recipient (row_number) and removes those past {@code maxPerUser} or older than the max age of
+ * their rule / severity, and gives the removed unread ones back to the unread counters in the same
+ * transaction. Removed keys recent enough to sit in a cooldown index are logged for eviction by the same
+ * statement. Between sweeps a user may briefly hold more than {@code maxPerUser} rows.
+ */
+@Component
+public class NotificationRetentionSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionSweeper.class);
+
+    private static final String USER_BATCH_SQL = """
+            select u.user_id from users u where u.user_id > ? order by u.user_id limit ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationRetentionProperties props;
+    private final NotificationUnreadCounters unreadCounters;
+    private final NotificationCooldownIndex cooldownIndex;
+    private final TransactionTemplate tx;
+
+    public NotificationRetentionSweeper(
+            JdbcTemplate jdbcTemplate,
+            NotificationRetentionProperties props,
+            NotificationUnreadCounters unreadCounters,
+            NotificationCooldownIndex cooldownIndex,
+            PlatformTransactionManager txManager
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.props = props;
+        this.unreadCounters = unreadCounters;
+        this.cooldownIndex = cooldownIndex;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    // Every 15 minutes by default
+    @Scheduled(fixedDelayString = "${homebuddy.notifications.retention.sweep-ms:900000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        int batchSize = Math.max(1, props.getUserBatchSize());
+        int maxPerUser = Math.max(1, props.getMaxPerUser());
+
+        List<Object> cutoffs = new ArrayList<>();
+        String sql = deleteSql(now, cutoffs);
+        cutoffs.add(OffsetDateTime.ofInstant(now, ZoneOffset.UTC));
+        cutoffs.add(OffsetDateTime.ofInstant(cooldownIndex.horizon(), ZoneOffset.UTC));
+
+        long afterUserId = 0;
+        long deleted = 0;
+        while (true) {
+            List<Long> users = jdbcTemplate.queryForList(USER_BATCH_SQL, Long.class, afterUserId, batchSize);
+            if (users.isEmpty()) break;
+
+            Long[] ids = users.toArray(Long[]::new);
+            Long removed = tx.execute(status -> {
+                // Deleted rows per recipient: total, and how many of them were still unread
+                Map<Long, Long> unreadDelta = new HashMap<>();
+                long[] total = {0};
+                jdbcTemplate.query(con -> {
+                    var ps = con.prepareStatement(sql);
+                    int i = 1;
+                    ps.setArray(i++, con.createArrayOf("bigint", ids));
+                    ps.setInt(i++, maxPerUser);
+                    for (Object cutoff : cutoffs) ps.setObject(i++, cutoff);
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    total[0] += rs.getLong("deleted");
+                    long unread = rs.getLong("unread");
+                    if (unread > 0) unreadDelta.put(rs.getLong("recipient_user_id"), -unread);
+                });
+                unreadCounters.adjust(unreadDelta);
+                return total[0];
+            });
+            deleted += (removed == null) ? 0 : removed;
+
+            afterUserId = users.get(users.size() - 1);
+            if (users.size() < batchSize) break;
+        }
+
+        if (deleted > 0) logger.info("Notification retention removed {} notification(s)", deleted);
+    }
+
+    /**
+     * DELETE for one user batch. Max ages become a CASE over rule then severity (enum names only, the
+     * cutoffs themselves are bound), appended to {@code cutoffs} in placeholder order; the caller then
+     * binds the eviction time and the cooldown index horizon.
+     */
+    private String deleteSql(Instant now, List<Object> cutoffs) {
+        StringBuilder maxAge = new StringBuilder("case");
+        for (Map.Entry<NotificationRule, Duration> e : props.getMaxAgeByRule().entrySet()) {
+            maxAge.append(" when n.rule = '").append(e.getKey().name()).append("' then ?");
+            cutoffs.add(cutoff(now, e.getValue()));
+        }
+        for (Map.Entry<NotificationSeverity, Duration> e : props.getMaxAgeBySeverity().entrySet()) {
+            maxAge.append(" when n.severity = '").append(e.getKey().name()).append("' then ?");
+            cutoffs.add(cutoff(now, e.getValue()));
+        }
+        maxAge.append(" else ? end");
+        cutoffs.add(cutoff(now, props.getDefaultMaxAge()));
+
+        return """
+                with removed as (
+                    delete from notification n
+                     using (select id,
+                                   row_number() over (partition by recipient_user_id order by created_at desc, id desc) as rn
+                              from notification
+                             where recipient_user_id = any(?)) ranked
+                     where n.id = ranked.id
+                       and (ranked.rn > ? or n.created_at < %s)
+                    returning n.recipient_user_id, n.read_at, n.notification_key, n.created_at),
+                evicted as (
+                    insert into notification_cooldown_eviction (recipient_user_id, notification_key, created_at)
+                    select distinct recipient_user_id, notification_key, ?::timestamptz
+                      from removed
+                     where notification_key is not null
+                       and created_at >= ?)
+                select recipient_user_id, count(*) as deleted, count(*) filter (where read_at is null) as unread
+                  from removed
+                 group by recipient_user_id
+                """.formatted(maxAge);
+    }
+
+    // No max age = kept until the per-user cap removes it
+    private static OffsetDateTime cutoff(Instant now, Duration maxAge) {
+        if (maxAge == null) return OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+        return OffsetDateTime.ofInstant(now.minus(maxAge), ZoneOffset.UTC);
+    }
+}
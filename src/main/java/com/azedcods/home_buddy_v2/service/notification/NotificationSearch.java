@@ -0,0 +1,17 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.model.notif.Notification;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Text search over notification title/message, composed with the other NotificationSpecs filters.
+ * Selected with homebuddy.notifications.search (fts = PostgreSQL full text, like = substring scan).
+ */
+public interface NotificationSearch {
+
+    /** Predicate for {@code q}; a blank query matches everything. */
+    Specification<Notification> matching(String q);
+
+    /** True when {@link #matching} orders results by relevance itself (the caller must not impose a sort). */
+    boolean ranks(String q);
+}
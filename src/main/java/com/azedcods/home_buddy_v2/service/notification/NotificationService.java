@@ -10,10 +10,13 @@ import com.azedcods.home_buddy_v2.repository.notif.NotificationRepository;
 import com.azedcods.home_buddy_v2.repository.auth.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.springframework.data.jpa.domain.Specification.where;
@@ -22,10 +25,12 @@ import static org.springframework.data.jpa.domain.Specification.where;
 @RequiredArgsConstructor
 public class NotificationService {
 
-    private static final int MAX_NOTIFICATIONS_PER_USER = 500;
-
     private final NotificationRepository notificationRepo;
     private final UserRepository userRepo;
+    private final NotificationCooldownIndex cooldownIndex;
+    private final NotificationUnreadCounters unreadCounters;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NotificationSearch notificationSearch;
 
     public Page<NotificationDtos.Response> list(
             Long userId,
@@ -45,15 +50,82 @@ public class NotificationService {
                 .and(NotificationSpecs.type(type))
                 .and(NotificationSpecs.from(from))
                 .and(NotificationSpecs.to(to))
-                .and(NotificationSpecs.search(q));
+                .and(notificationSearch.matching(q));
 
-        Pageable pageable = PageRequest.of(safePage, safeSize, Sort.by(Sort.Direction.DESC, "createdAt"));
+        // A ranked search orders by relevance itself
+        Sort sort = notificationSearch.ranks(q) ? Sort.unsorted() : Sort.by(Sort.Direction.DESC, "createdAt");
+        Pageable pageable = PageRequest.of(safePage, safeSize, sort);
         return notificationRepo.findAll(spec, pageable).map(this::toDto);
     }
 
+    /**
+     * Keyset listing, newest first: same filters as {@link #list} without OFFSET or count query.
+     * With a text query the order stays by recency (relevance ranking is for {@link #list}).
+     */
+    public NotificationDtos.CursorPage listByCursor(
+            Long userId,
+            Boolean unreadOnly,
+            NotificationType type,
+            Instant from,
+            Instant to,
+            String q,
+            String cursor,
+            Integer limit
+    ) {
+        int size = (limit == null) ? 20 : Math.max(1, Math.min(limit, 100));
+        NotificationCursor after = (cursor == null || cursor.isBlank()) ? null : NotificationCursor.decode(cursor);
+
+        var spec = where(NotificationSpecs.recipient(userId))
+                .and(NotificationSpecs.unreadOnly(unreadOnly))
+                .and(NotificationSpecs.type(type))
+                .and(NotificationSpecs.from(from))
+                .and(NotificationSpecs.to(to))
+                .and(notificationSearch.matching(q))
+                .and(NotificationSpecs.before(after));
+
+        // One extra row tells us whether there is a next page
+        List<Notification> rows = notificationRepo.findBy(spec, query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")))
+                .limit(size + 1)
+                .all());
+
+        boolean hasMore = rows.size() > size;
+        List<Notification> page = hasMore ? rows.subList(0, size) : rows;
+        String next = null;
+        if (hasMore) {
+            Notification last = page.get(size - 1);
+            next = new NotificationCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new NotificationDtos.CursorPage(page.stream().map(this::toDto).toList(), next, hasMore);
+    }
+
+    /**
+     * Notifications of a user after {@code afterId}, oldest first (stream resume), preceded by up to
+     * {@code lookback} of the newest at or below it: ids are taken before commit, so a lower id can commit
+     * after a higher one was delivered. The client drops the ids it already holds.
+     */
+    public List<NotificationDtos.Response> listAfter(Long userId, Long afterId, int lookback, int limit) {
+        List<Notification> earlier = (lookback <= 0) ? List.of()
+                : notificationRepo.findByRecipientUser_UserIdAndIdLessThanEqualOrderByIdDesc(
+                        userId, afterId, PageRequest.of(0, lookback));
+        List<Notification> later = notificationRepo.findByRecipientUser_UserIdAndIdGreaterThanOrderByIdAsc(
+                userId, afterId, PageRequest.of(0, Math.max(1, limit)));
+
+        List<NotificationDtos.Response> out = new ArrayList<>(earlier.size() + later.size());
+        for (int i = earlier.size() - 1; i >= 0; i--) out.add(toDto(earlier.get(i)));
+        for (Notification n : later) out.add(toDto(n));
+        return out;
+    }
+
+    /** Notifications by id, oldest first (stream fan-out from other nodes). */
+    public List<NotificationDtos.Response> listByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        return notificationRepo.findByIdInOrderByIdAsc(ids).stream().map(this::toDto).toList();
+    }
+
     // ✅ supports admin-all mode
     public NotificationDtos.UnreadCountResponse unreadCount(Long userId) {
-        long count = (userId == null) ? notificationRepo.countUnreadAll() : notificationRepo.countUnread(userId);
+        long count = (userId == null) ? unreadCounters.unreadAll() : unreadCounters.unread(userId);
         return new NotificationDtos.UnreadCountResponse(userId, count);
     }
 
@@ -88,9 +160,11 @@ public class NotificationService {
         n.setRelatedEntityId(safe(req.relatedEntityId(), 60, null));
 
         notificationRepo.save(n);
+        unreadCounters.adjust(recipient.getUserId(), 1);
 
-        pruneOldestForUser(recipient.getUserId());
-        return toDto(n);
+        NotificationDtos.Response dto = toDto(n);
+        eventPublisher.publishEvent(NotificationChangedEvent.created(List.of(dto)));
+        return dto;
     }
 
     @Transactional
@@ -102,31 +176,35 @@ public class NotificationService {
             throw new IllegalArgumentException("Notification does not belong to userId=" + userId);
         }
 
-        n.markRead();
+        if (notificationRepo.markReadIfUnread(notificationId, Instant.now()) == 1) {
+            unreadCounters.adjust(userId, -1);
+            n = notificationRepo.findById(notificationId).orElseThrow();
+        }
         return toDto(n);
     }
 
     @Transactional
     public int markAllRead(Long userId) {
-        return notificationRepo.markAllRead(userId, Instant.now());
+        int updated = notificationRepo.markAllRead(userId, Instant.now());
+        unreadCounters.adjust(userId, -updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Long notificationId) {
-        if (!notificationRepo.existsById(notificationId)) return;
-        notificationRepo.deleteById(notificationId);
-    }
-
-    private void pruneOldestForUser(Long userId) {
-        long count = notificationRepo.countByRecipientUser_UserId(userId);
-        if (count <= MAX_NOTIFICATIONS_PER_USER) return;
+        Notification n = notificationRepo.findById(notificationId).orElse(null);
+        if (n == null) return;
 
-        int overflow = (int) (count - MAX_NOTIFICATIONS_PER_USER);
-        List<Notification> oldest = notificationRepo.findByRecipientUser_UserIdOrderByCreatedAtAsc(
-                userId,
-                PageRequest.of(0, overflow)
-        );
-        notificationRepo.deleteAll(oldest);
+        // Its key may be cooling down in some node's index: the cooldown follows what is in the table
+        if (n.getNotificationKey() != null) {
+            cooldownIndex.evictEverywhere(n.getRecipientUser().getUserId(), n.getNotificationKey());
+        }
+        Long recipientId = n.getRecipientUser().getUserId();
+        if (notificationRepo.deleteIfUnread(notificationId) == 1) {
+            unreadCounters.adjust(recipientId, -1);
+        } else {
+            notificationRepo.deleteIfRead(notificationId);
+        }
     }
 
     private NotificationDtos.Response toDto(Notification n) {
@@ -146,7 +224,8 @@ public class NotificationService {
                 n.getRelatedEntityId(),
                 n.getCreatedAt(),
                 n.getReadAt(),
-                n.isRead()
+                n.isRead(),
+                n.getOccurrenceCount()
         );
     }
 
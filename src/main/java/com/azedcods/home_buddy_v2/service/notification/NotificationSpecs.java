@@ -38,6 +38,19 @@ public class NotificationSpecs {
         return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("createdAt"), to);
     }
 
+    // Keyset: strictly after the cursor in (createdAt desc, id desc) order.
+    // The redundant createdAt <= bound keeps a range scan on the (recipient, createdAt) index.
+    public static Specification<Notification> before(NotificationCursor cursor) {
+        if (cursor == null) return (root, query, cb) -> cb.conjunction();
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), cursor.createdAt()),
+                cb.or(
+                        cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                        cb.lessThan(root.get("id"), cursor.id())
+                )
+        );
+    }
+
     public static Specification<Notification> search(String q) {
         if (q == null || q.trim().isEmpty()) return (root, query, cb) -> cb.conjunction();
         String like = "%" + q.trim().toLowerCase() + "%";
@@ -0,0 +1,163 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.payload.NotificationDtos;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cross-node fan-out for {@link NotificationStreamService} over PostgreSQL LISTEN/NOTIFY.
+ *
+ * - After commit, each node announces what it created / moved as compact "user:id" and "user:delta"
+ *   pairs on one channel, sent off the request thread in chunks below the payload limit
+ * - Every node listens on a dedicated connection, skips its own announcements (already delivered
+ *   locally) and loads only the notifications of users it holds a stream for
+ * - NOTIFY is best effort: what a node misses while reconnecting reaches the client on its next resume
+ */
+@Component
+@ConditionalOnProperty(name = "homebuddy.notifications.stream-relay", havingValue = "true", matchIfMissing = true)
+public class NotificationStreamRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamRelay.class);
+
+    static final String CHANNEL = "notification_stream";
+
+    // Pairs per NOTIFY: well below the 8000 byte payload limit
+    private static final int PAIRS_PER_MESSAGE = 300;
+    private static final int POLL_MS = 10_000;
+    private static final long RECONNECT_MS = 5_000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
+    private final NotificationStreamService streamService;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public NotificationStreamRelay(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            NotificationService notificationService,
+            NotificationStreamService streamService
+    ) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.streamService = streamService;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onChanged(NotificationChangedEvent event) {
+        List<String> created = new ArrayList<>(event.created().size());
+        for (NotificationDtos.Response r : event.created()) created.add(r.recipientUserId() + ":" + r.id());
+        List<String> deltas = new ArrayList<>(event.unreadDeltaByUser().size());
+        event.unreadDeltaByUser().forEach((userId, delta) -> deltas.add(userId + ":" + delta));
+        if (created.isEmpty() && deltas.isEmpty()) return;
+
+        // Own thread: no transaction bound, so each NOTIFY commits (and is sent) on its own
+        sender.execute(() -> {
+            try {
+                for (int i = 0; i < created.size(); i += PAIRS_PER_MESSAGE) {
+                    announce("n", created.subList(i, Math.min(created.size(), i + PAIRS_PER_MESSAGE)));
+                }
+                for (int i = 0; i < deltas.size(); i += PAIRS_PER_MESSAGE) {
+                    announce("u", deltas.subList(i, Math.min(deltas.size(), i + PAIRS_PER_MESSAGE)));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not relay notification changes to other nodes", e);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        // Platform thread: the driver blocks in synchronized code while waiting for notifications
+        listener = Thread.ofPlatform().daemon().name("notification-stream-relay").start(this::listen);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (listener != null) listener.interrupt();
+        sender.shutdown();
+    }
+
+    private void announce(String kind, List<String> pairs) {
+        jdbcTemplate.queryForList("select pg_notify(?, ?)", CHANNEL, nodeId + "|" + kind + "|" + String.join(",", pairs));
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection con = dataSource.getConnection()) {
+                con.setAutoCommit(true);
+                try (Statement st = con.createStatement()) {
+                    st.execute("listen " + CHANNEL);
+                }
+                PGConnection pg = con.unwrap(PGConnection.class);
+                logger.info("Notification stream relay listening on node {}", nodeId);
+
+                while (running) {
+                    PGNotification[] received = pg.getNotifications(POLL_MS);
+                    if (received == null) continue;
+                    for (PGNotification n : received) {
+                        try {
+                            receive(n.getParameter());
+                        } catch (RuntimeException e) {
+                            logger.warn("Could not deliver relayed notification changes", e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                logger.warn("Notification stream relay lost its connection, reconnecting in {} ms", RECONNECT_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0]) || parts[2].isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>();
+        Map<Long, Long> deltas = new HashMap<>();
+        for (String pair : parts[2].split(",")) {
+            int sep = pair.indexOf(':');
+            long userId = Long.parseLong(pair.substring(0, sep));
+            if (!streamService.hasSubscribers(userId)) continue;
+            long value = Long.parseLong(pair.substring(sep + 1));
+            if ("n".equals(parts[1])) ids.add(value);
+            else deltas.merge(userId, value, Long::sum);
+        }
+        if (ids.isEmpty() && deltas.isEmpty()) return;
+
+        streamService.deliver(notificationService.listByIds(ids), deltas);
+    }
+}
@@ -0,0 +1,239 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.payload.NotificationDtos;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-user Server-Sent Events: new notifications ("notification", id = notification id) and unread count
+ * moves ("unread-delta"), pushed once the transaction that made them commits.
+ *
+ * - An idle connection is an async servlet response plus a small bounded buffer: no thread is held.
+ *   Writes run on virtual threads, one drain at a time per connection
+ * - A connection whose buffer overflows (client too slow) is closed; the client reconnects with
+ *   Last-Event-ID and gets what it missed from the table
+ * - Each connection starts with an "unread" snapshot, so deltas never need replaying
+ * - Ids commit out of order: a resume replays a few ids at or below Last-Event-ID too, and each
+ *   connection drops only the ids it recently sent (not everything below the highest one)
+ * - Changes committed on other nodes arrive through {@link NotificationStreamRelay}
+ */
+@Component
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    private static final int REPLAY_LIMIT = 200;
+    // Already-delivered ids replayed on resume, in case a lower id committed after them
+    private static final int RESUME_LOOKBACK = 20;
+    private static final int RECENT_IDS = 256;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final NotificationService notificationService;
+    private final NotificationUnreadCounters unreadCounters;
+    private final long timeoutMs;
+    private final int bufferSize;
+
+    public NotificationStreamService(
+            NotificationService notificationService,
+            NotificationUnreadCounters unreadCounters,
+            @Value("${homebuddy.notifications.stream-timeout-ms:1800000}") long timeoutMs,
+            @Value("${homebuddy.notifications.stream-buffer-size:64}") int bufferSize
+    ) {
+        this.notificationService = notificationService;
+        this.unreadCounters = unreadCounters;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = Math.max(8, bufferSize);
+    }
+
+    /**
+     * Open a stream for {@code userId}.
+     *
+     * @param lastEventId last notification id the client received, or {@code null} for live events only
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(userId, emitter);
+        // Registered first: live events arriving during the catch-up wait in the buffer
+        subscribers.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(s);
+        emitter.onCompletion(() -> unregister(s));
+        emitter.onTimeout(s::close);
+        emitter.onError(e -> s.close());
+
+        List<Outgoing> initial = new ArrayList<>();
+        if (lastEventId != null) {
+            List<NotificationDtos.Response> missed =
+                    notificationService.listAfter(userId, lastEventId, RESUME_LOOKBACK, REPLAY_LIMIT);
+            for (NotificationDtos.Response r : missed) initial.add(Outgoing.notification(r));
+            // Too far behind to catch up event by event: the client reloads its list instead
+            long newer = missed.stream().filter(r -> r.id() > lastEventId).count();
+            if (newer == REPLAY_LIMIT) initial.add(new Outgoing(null, "resync", lastEventId));
+        }
+        initial.add(new Outgoing(null, "unread",
+                new NotificationDtos.UnreadCountResponse(userId, unreadCounters.unread(userId))));
+
+        s.start(initial);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onChanged(NotificationChangedEvent event) {
+        deliver(event.created(), event.unreadDeltaByUser());
+    }
+
+    /** Push committed changes to this node's connections (local commits, or relayed from other nodes). */
+    void deliver(List<NotificationDtos.Response> created, Map<Long, Long> unreadDeltaByUser) {
+        for (NotificationDtos.Response r : created) {
+            Set<Subscriber> subs = subscribers.get(r.recipientUserId());
+            if (subs != null) subs.forEach(s -> s.offer(Outgoing.notification(r)));
+        }
+        for (Map.Entry<Long, Long> e : unreadDeltaByUser.entrySet()) {
+            Set<Subscriber> subs = subscribers.get(e.getKey());
+            if (subs == null) continue;
+            Outgoing delta = new Outgoing(null, "unread-delta", new NotificationDtos.UnreadDelta(e.getKey(), e.getValue()));
+            subs.forEach(s -> s.offer(delta));
+        }
+    }
+
+    // Every 25 seconds: keep idle connections open through proxies, and detect dead ones
+    @Scheduled(fixedDelay = 25_000)
+    public void heartbeat() {
+        subscribers.values().forEach(subs -> subs.forEach(s -> s.offer(Outgoing.HEARTBEAT)));
+    }
+
+    boolean hasSubscribers(Long userId) {
+        return subscribers.containsKey(userId);
+    }
+
+    public int connectionCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.values().forEach(subs -> subs.forEach(Subscriber::close));
+        sender.shutdown();
+    }
+
+    private void unregister(Subscriber s) {
+        subscribers.computeIfPresent(s.userId, (k, subs) -> {
+            subs.remove(s);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    /** @param notificationId set for notification events: becomes the SSE id (resume point) */
+    private record Outgoing(Long notificationId, String name, Object data) {
+
+        static final Outgoing HEARTBEAT = new Outgoing(null, null, null);
+
+        static Outgoing notification(NotificationDtos.Response r) {
+            return new Outgoing(r.id(), "notification", r);
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (name == null) return SseEmitter.event().comment("hb");
+            SseEmitter.SseEventBuilder b = SseEmitter.event().name(name).data(data);
+            return (notificationId == null) ? b : b.id(Long.toString(notificationId));
+        }
+    }
+
+    private final class Subscriber {
+
+        final Long userId;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Outgoing> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        // Held from creation until the catch-up is written, then by whichever drain is running
+        final AtomicBoolean draining = new AtomicBoolean(true);
+
+        // Only touched by the writer holding the draining flag
+        final LinkedHashSet<Long> recentIds = new LinkedHashSet<>();
+        volatile boolean closed;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void start(List<Outgoing> initial) {
+            sender.execute(() -> {
+                for (Outgoing o : initial) {
+                    if (!write(o)) return;
+                }
+                drain();
+            });
+        }
+
+        void offer(Outgoing o) {
+            if (closed) return;
+            if (!buffer.offer(o)) {
+                logger.debug("Notification stream of userId={} overflowed, closing", userId);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) sender.execute(this::drain);
+        }
+
+        // Caller holds the draining flag
+        private void drain() {
+            while (true) {
+                Outgoing o;
+                while ((o = buffer.poll()) != null) {
+                    if (!write(o)) return;
+                }
+                draining.set(false);
+                // An offer may have slipped in between the last poll and the release
+                if (buffer.isEmpty() || !draining.compareAndSet(false, true)) return;
+            }
+        }
+
+        private boolean write(Outgoing o) {
+            if (closed) return false;
+            // Replayed and live copies of the same notification can overlap
+            if (o.notificationId() != null) {
+                if (!recentIds.add(o.notificationId())) return true;
+                if (recentIds.size() > RECENT_IDS) recentIds.removeFirst();
+            }
+            try {
+                emitter.send(o.toEvent());
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            unregister(this);
+            buffer.clear();
+            try {
+                emitter.complete();
+            } catch (RuntimeException ignored) {
+                // already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Unread notification counts without counting: one row per user (notification_unread_counter) plus a
+ * striped all-users total (notification_unread_stripe).
+ *
+ * - Every path that inserts, reads or deletes notifications calls {@link #adjust} in its own transaction,
+ *   with deltas it knows exactly (rows inserted, rows actually flipped / deleted while unread)
+ * - Rows are locked in user id / stripe order, so concurrent writers cannot deadlock on them
+ * - {@link #reconcile} recomputes everything from the notification table (startup + hourly) and absorbs
+ *   any drift, e.g. from rows changed by hand
+ * - Adjusters hold a shared advisory lock until they commit and the recount takes it exclusively: a count
+ *   never overwrites a delta it could not see, and a delta never lands on a count that already includes it
+ */
+@Component
+public class NotificationUnreadCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationUnreadCounters.class);
+
+    static final int STRIPES = 16;
+
+    // Advisory lock key shared by adjust (shared) and reconcile (exclusive)
+    private static final long RECOUNT_LOCK = 0x6e6f7469665f7563L;
+
+    private static final String ADD_USER_SQL = """
+            insert into notification_unread_counter (user_id, unread) values (?, ?)
+            on conflict (user_id) do update set unread = notification_unread_counter.unread + excluded.unread
+            """;
+
+    private static final String ADD_STRIPE_SQL = """
+            update notification_unread_stripe set unread = unread + ? where stripe = ?
+            """;
+
+    private static final String SEED_STRIPES_SQL = """
+            insert into notification_unread_stripe (stripe, unread)
+            select s, 0 from generate_series(0, ? - 1) s
+            on conflict (stripe) do nothing
+            """;
+
+    private static final String RECOUNT_USERS_SQL = """
+            insert into notification_unread_counter (user_id, unread)
+            select recipient_user_id, count(*)
+              from notification
+             where read_at is null
+             group by recipient_user_id
+            on conflict (user_id) do update set unread = excluded.unread
+             where notification_unread_counter.unread <> excluded.unread
+            """;
+
+    private static final String ZERO_USERS_SQL = """
+            update notification_unread_counter c
+               set unread = 0
+             where c.unread <> 0
+               and not exists (select 1 from notification n where n.recipient_user_id = c.user_id and n.read_at is null)
+            """;
+
+    private static final String RECOUNT_STRIPES_SQL = """
+            update notification_unread_stripe s
+               set unread = coalesce((select sum(c.unread) from notification_unread_counter c
+                                       where mod(c.user_id, ?) = s.stripe), 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public NotificationUnreadCounters(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager txManager,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(txManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    public long unread(Long userId) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "select unread from notification_unread_counter where user_id = ?", Long.class, userId);
+        return rows.isEmpty() ? 0 : Math.max(0, rows.get(0));
+    }
+
+    public long unreadAll() {
+        Long sum = jdbcTemplate.queryForObject("select coalesce(sum(unread), 0) from notification_unread_stripe", Long.class);
+        return sum == null ? 0 : Math.max(0, sum);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjust(Long userId, long delta) {
+        if (userId == null || delta == 0) return;
+        adjust(Map.of(userId, delta));
+    }
+
+    /** Apply per-user unread deltas. Must share the transaction that changed the notifications. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjust(Map<Long, Long> deltaByUser) {
+        if (deltaByUser == null || deltaByUser.isEmpty()) return;
+
+        TreeMap<Long, Long> users = new TreeMap<>();
+        TreeMap<Integer, Long> stripes = new TreeMap<>();
+        deltaByUser.forEach((userId, delta) -> {
+            if (userId == null || delta == null || delta == 0) return;
+            users.merge(userId, delta, Long::sum);
+            stripes.merge(stripeOf(userId), delta, Long::sum);
+        });
+        if (users.isEmpty()) return;
+
+        // Held to commit: a running recount finishes first, and the next one waits for this delta
+        jdbcTemplate.queryForList("select pg_advisory_xact_lock_shared(?)", RECOUNT_LOCK);
+
+        List<Object[]> userRows = new ArrayList<>(users.size());
+        users.forEach((userId, delta) -> userRows.add(new Object[]{userId, delta}));
+        jdbcTemplate.batchUpdate(ADD_USER_SQL, userRows);
+
+        List<Object[]> stripeRows = new ArrayList<>(stripes.size());
+        stripes.forEach((stripe, delta) -> {
+            if (delta != 0) stripeRows.add(new Object[]{delta, stripe});
+        });
+        if (!stripeRows.isEmpty()) jdbcTemplate.batchUpdate(ADD_STRIPE_SQL, stripeRows);
+
+        eventPublisher.publishEvent(NotificationChangedEvent.unread(users));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    // Every hour: recompute counters from the notification table
+    @Scheduled(cron = "0 35 * * * *")
+    public void reconcile() {
+        tx.executeWithoutResult(status -> {
+            // Waits out in-flight adjusters; each count below then sees their committed rows
+            jdbcTemplate.queryForList("select pg_advisory_xact_lock(?)", RECOUNT_LOCK);
+            jdbcTemplate.update(SEED_STRIPES_SQL, STRIPES);
+            int fixed = jdbcTemplate.update(RECOUNT_USERS_SQL) + jdbcTemplate.update(ZERO_USERS_SQL);
+            jdbcTemplate.update(RECOUNT_STRIPES_SQL, STRIPES);
+            if (fixed > 0) logger.info("Unread counters reconciled: {} user counter(s) written", fixed);
+        });
+    }
+
+    static int stripeOf(long userId) {
+        return (int) Math.floorMod(userId, (long) STRIPES);
+    }
+}
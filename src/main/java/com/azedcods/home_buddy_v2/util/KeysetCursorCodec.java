@@ -0,0 +1,32 @@
+package com.azedcods.home_buddy_v2.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Opaque URL-safe token for a keyset position: a sort value plus the id that breaks its ties.
+ * Clients never build or read it; anything that does not decode is an "Invalid cursor".
+ */
+public final class KeysetCursorCodec {
+
+    private KeysetCursorCodec() {}
+
+    /** @param position sort value whose {@code toString} its parser reads back (ISO date-times, ...) */
+    public static String encode(Object position, Long id) {
+        String raw = position + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static <P, T> T decode(String token, Function<String, P> parsePosition, BiFunction<P, Long, T> cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return cursor.apply(parsePosition.apply(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.azedcods.home_buddy_v2.model.dose;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledScheduleTests {
+
+    // 2026-03-02 is a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    @Test
+    void emptyDaysMeanEveryDayAndFrequencyPicksDefaultTimes() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 2, Set.of(), Set.of(), null, null);
+
+        assertEquals(0x7F, s.getWeekdayMask());
+        assertEquals(2, s.timesPerDay());
+        assertEquals(List.of(MONDAY.atTime(9, 0), MONDAY.atTime(21, 0)),
+                s.expand(MONDAY.atStartOfDay(), MONDAY.atTime(LocalTime.MAX)));
+    }
+
+    @Test
+    void explicitTimesAreSortedAndDistinct() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 5,
+                null, Set.of(LocalTime.of(20, 0), LocalTime.of(7, 30)), null, null);
+
+        assertEquals(2, s.timesPerDay());
+        assertEquals(List.of(MONDAY.atTime(7, 30), MONDAY.atTime(20, 0)),
+                s.expand(MONDAY.atStartOfDay(), MONDAY.atTime(23, 59)));
+    }
+
+    @Test
+    void highFrequenciesSpreadBetweenSixAndTwentyTwo() {
+        List<LocalDateTime> day = CompiledSchedule.of(1L, 0, 9, null, null, null, null)
+                .expand(MONDAY.atStartOfDay(), MONDAY.atTime(LocalTime.MAX));
+
+        assertEquals(9, day.size());
+        assertEquals(LocalTime.of(6, 0), day.get(0).toLocalTime());
+        assertEquals(LocalTime.of(22, 0), day.get(8).toLocalTime());
+    }
+
+    @Test
+    void onlyActiveWeekdaysAreExpanded() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 1,
+                EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY), null, null, null);
+
+        assertTrue(s.activeOn(DayOfWeek.THURSDAY));
+        assertFalse(s.activeOn(DayOfWeek.SUNDAY));
+        assertEquals(List.of(MONDAY.atTime(9, 0), MONDAY.plusDays(3).atTime(9, 0), MONDAY.plusDays(7).atTime(9, 0)),
+                s.expand(MONDAY.atStartOfDay(), MONDAY.plusDays(7).atTime(LocalTime.MAX)));
+    }
+
+    @Test
+    void windowIsClampedByStartAndEndDates() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 1, null, null, MONDAY.plusDays(1), MONDAY.plusDays(2));
+
+        assertEquals(List.of(MONDAY.plusDays(1).atTime(9, 0), MONDAY.plusDays(2).atTime(9, 0)),
+                s.expand(MONDAY.atStartOfDay(), MONDAY.plusDays(6).atTime(LocalTime.MAX)));
+    }
+
+    @Test
+    void windowBoundsAreInclusiveAndEmptyWhenReversed() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 2, null, null, null, null);
+
+        assertEquals(List.of(MONDAY.atTime(9, 0), MONDAY.atTime(21, 0)),
+                s.expand(MONDAY.atTime(9, 0), MONDAY.atTime(21, 0)));
+        assertEquals(List.of(), s.expand(MONDAY.atTime(21, 0), MONDAY.atTime(9, 0)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdherenceServiceTests {
+
+    @Test
+    void bucketsFollowSqlWidthBucket() {
+        // Bounds {5, 15, 30, 60, 120, 240, 480, 1440}: a bound opens its bucket
+        assertEquals(0, AdherenceService.bucketOf(0));
+        assertEquals(0, AdherenceService.bucketOf(4));
+        assertEquals(1, AdherenceService.bucketOf(5));
+        assertEquals(2, AdherenceService.bucketOf(29));
+        assertEquals(7, AdherenceService.bucketOf(1439));
+        assertEquals(8, AdherenceService.bucketOf(1440));
+        assertEquals(8, AdherenceService.bucketOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void percentileIsTheUpperBoundOfItsBucket() {
+        int[] buckets = new int[AdherenceService.LATENCY_BUCKET_BOUNDS.length + 1];
+        buckets[0] = 2;
+        buckets[1] = 1;
+        buckets[2] = 1;
+
+        assertEquals(5, AdherenceService.percentile(buckets, 4, 0.50));
+        assertEquals(15, AdherenceService.percentile(buckets, 4, 0.75));
+        assertEquals(30, AdherenceService.percentile(buckets, 4, 0.90));
+    }
+
+    @Test
+    void percentileIsNullWithoutTakesOrPastTheLastBound() {
+        int[] buckets = new int[AdherenceService.LATENCY_BUCKET_BOUNDS.length + 1];
+        assertNull(AdherenceService.percentile(buckets, 0, 0.5));
+
+        buckets[buckets.length - 1] = 3;
+        assertNull(AdherenceService.percentile(buckets, 3, 0.5));
+    }
+
+    @Test
+    void earlyTakesHaveNoLatency() {
+        LocalDateTime at = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+        assertEquals(0, AdherenceService.latencyMinutes(at, at.minusMinutes(10)));
+        assertEquals(90, AdherenceService.latencyMinutes(at, at.plusMinutes(90)));
+        assertEquals(0, AdherenceService.latencyMinutes(null, at));
+    }
+}
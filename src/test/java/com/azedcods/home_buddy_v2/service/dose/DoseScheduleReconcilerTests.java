@@ -0,0 +1,72 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.model.dose.CompiledSchedule;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceBatchWriter.NewOccurrence;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoseScheduleReconcilerTests {
+
+    // 2026-03-02 is a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    private final List<NewOccurrence> added = new ArrayList<>();
+    private final List<NewOccurrence> removed = new ArrayList<>();
+
+    @Test
+    void onlyChangedInstantsAreReported() {
+        // Default times 09:00 and 21:00 -> 09:00 and 13:00
+        CompiledSchedule before = CompiledSchedule.of(1L, 0, 2, null, null, null, null);
+        CompiledSchedule after = CompiledSchedule.of(1L, 0, 2,
+                null, Set.of(LocalTime.of(9, 0), LocalTime.of(13, 0)), null, null);
+
+        diff(before, after, MONDAY.atStartOfDay(), MONDAY.plusDays(1).atTime(LocalTime.MAX));
+
+        assertEquals(List.of(MONDAY.atTime(13, 0), MONDAY.plusDays(1).atTime(13, 0)), instants(added));
+        assertEquals(List.of(MONDAY.atTime(21, 0), MONDAY.plusDays(1).atTime(21, 0)), instants(removed));
+        assertTrue(added.stream().allMatch(o -> o.doseId() == 1L));
+    }
+
+    @Test
+    void droppedWeekdaysAreRemovedAndNewOnesAdded() {
+        CompiledSchedule before = CompiledSchedule.of(1L, 0, 1,
+                EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY), null, null, null);
+        CompiledSchedule after = CompiledSchedule.of(1L, 0, 1,
+                EnumSet.of(DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY), null, null, null);
+
+        diff(before, after, MONDAY.atStartOfDay(), MONDAY.plusDays(6).atTime(LocalTime.MAX));
+
+        assertEquals(List.of(MONDAY.plusDays(2).atTime(9, 0)), instants(added));
+        assertEquals(List.of(MONDAY.atTime(9, 0)), instants(removed));
+    }
+
+    @Test
+    void sameRulesOrAnEmptyRangeChangeNothing() {
+        CompiledSchedule s = CompiledSchedule.of(1L, 0, 3, null, null, null, null);
+
+        diff(s, s, MONDAY.atStartOfDay(), MONDAY.plusDays(30).atStartOfDay());
+        diff(CompiledSchedule.of(1L, 0, 1, null, null, null, null), s,
+                MONDAY.atTime(22, 0), MONDAY.atTime(23, 0));
+
+        assertTrue(added.isEmpty());
+        assertTrue(removed.isEmpty());
+    }
+
+    private void diff(CompiledSchedule before, CompiledSchedule after, LocalDateTime from, LocalDateTime to) {
+        DoseScheduleReconciler.diff(before, after, from, to, added, removed);
+    }
+
+    private static List<LocalDateTime> instants(List<NewOccurrence> occurrences) {
+        return occurrences.stream().map(NewOccurrence::at).toList();
+    }
+}
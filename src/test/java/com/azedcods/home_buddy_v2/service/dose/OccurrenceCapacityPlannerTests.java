@@ -0,0 +1,64 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccurrenceCapacityPlannerTests {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 31);
+
+    @Test
+    void acceptsUntilTheDayIsFullCountingExistingOccurrences() {
+        OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner(3);
+        planner.countExisting(DAY.atTime(8, 0));
+        planner.countExisting(DAY, 1);
+
+        assertTrue(planner.tryAccept(1L, DAY.atTime(12, 0)));
+        assertFalse(planner.tryAccept(2L, DAY.atTime(20, 0)));
+
+        assertTrue(planner.hasViolations());
+        assertEquals(new OccurrenceCapacityPlanner.CapacityViolation(DAY.atTime(20, 0), 2L, 3),
+                planner.getViolations().get(0));
+        assertEquals(Map.of(DAY, 3), planner.getDateCounts());
+        assertEquals(Map.of(DAY, 1), planner.getAcceptedDateCounts());
+    }
+
+    @Test
+    void daysAreCountedByDateNotDayOfMonth() {
+        OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner(1);
+
+        assertTrue(planner.tryAccept(1L, LocalDateTime.of(2026, 3, 1, 9, 0)));
+        assertTrue(planner.tryAccept(1L, LocalDateTime.of(2026, 4, 1, 9, 0)));
+        assertFalse(planner.hasViolations());
+
+        // Compartments are per day of month: both dates land on day 1
+        assertEquals(Map.of(1, 2), planner.getDayOfMonthCounts());
+    }
+
+    @Test
+    void defaultCapacityIsTheDispenserLimit() {
+        OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner();
+        for (int i = 0; i < OccurrenceCapacityPlanner.MAX_OCCURRENCES_PER_DAY; i++) {
+            assertTrue(planner.tryAccept(1L, DAY.atTime(i, 0)));
+        }
+        assertFalse(planner.tryAccept(1L, DAY.atTime(23, 0)));
+    }
+
+    @Test
+    void reportGroupsViolationsByDate() {
+        OccurrenceCapacityPlanner planner = new OccurrenceCapacityPlanner(0);
+        planner.tryAccept(7L, DAY.atTime(9, 5));
+        planner.tryAccept(8L, DAY.atTime(21, 0));
+
+        String report = planner.buildViolationReport();
+        assertTrue(report.contains("dispenser capacity is 0 per day"));
+        assertTrue(report.contains("• " + DAY + " already has 0 scheduled occurrence(s). Attempted to add 2 more."));
+        assertTrue(report.contains("- doseId=7 at 09:05"));
+        assertTrue(report.contains("- doseId=8 at 21:00"));
+    }
+}
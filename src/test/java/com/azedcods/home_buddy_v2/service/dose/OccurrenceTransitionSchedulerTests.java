@@ -0,0 +1,90 @@
+package com.azedcods.home_buddy_v2.service.dose;
+
+import com.azedcods.home_buddy_v2.enums.OccurrenceStatus;
+import com.azedcods.home_buddy_v2.model.dose.DoseOccurrence;
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceTransitionScheduler.Deadline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccurrenceTransitionSchedulerTests {
+
+    private static final Instant T = Instant.parse("2026-03-02T14:00:00Z");
+
+    // Queue bookkeeping only: nothing here reaches the DB
+    private final OccurrenceTransitionScheduler scheduler = new OccurrenceTransitionScheduler(null, null, null, null, null);
+
+    @Test
+    void pollTakesOnlyPassedDeadlinesInOrder() {
+        scheduler.track(1L, T.plusSeconds(10), OccurrenceStatus.SCHEDULED);
+        scheduler.track(2L, T, OccurrenceStatus.SCHEDULED);
+        scheduler.track(3L, T.minus(DoseOccurrence.MISSED_AFTER).minusSeconds(1), OccurrenceStatus.DUE);
+
+        assertEquals(List.of(3L, 2L), ids(scheduler.pollExpired(T)));
+        assertEquals(1, scheduler.pendingCount());
+        assertEquals(List.of(), scheduler.pollExpired(T.plusSeconds(9)));
+        assertEquals(List.of(1L), ids(scheduler.pollExpired(T.plusSeconds(10))));
+    }
+
+    @Test
+    void dueRowsWaitForTheirMissedDeadline() {
+        scheduler.track(1L, T, OccurrenceStatus.DUE);
+
+        assertEquals(List.of(), scheduler.pollExpired(T.plusSeconds(1)));
+
+        Deadline d = scheduler.pollExpired(T.plus(DoseOccurrence.MISSED_AFTER)).getFirst();
+        assertEquals(OccurrenceStatus.MISSED, d.target());
+        assertEquals(T, d.scheduledAt());
+    }
+
+    @Test
+    void trackingTheSameDeadlineTwiceQueuesItOnce() {
+        scheduler.track(1L, T, OccurrenceStatus.SCHEDULED);
+        scheduler.track(1L, T, OccurrenceStatus.SCHEDULED);
+
+        assertEquals(1, scheduler.pendingCount());
+        assertEquals(List.of(1L), ids(scheduler.pollExpired(T)));
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void aNewDeadlineSupersedesTheQueuedOne() {
+        scheduler.track(1L, T, OccurrenceStatus.SCHEDULED);
+        scheduler.track(1L, T.plusSeconds(60), OccurrenceStatus.SCHEDULED);
+
+        assertEquals(List.of(), scheduler.pollExpired(T));
+        assertEquals(List.of(1L), ids(scheduler.pollExpired(T.plusSeconds(60))));
+    }
+
+    @Test
+    void retrackPastTheLookaheadLeavesTheQueue() {
+        scheduler.track(1L, T, OccurrenceStatus.SCHEDULED);
+        scheduler.retrack(1L, Instant.now().plus(Duration.ofDays(1)), OccurrenceStatus.SCHEDULED);
+
+        assertEquals(0, scheduler.pendingCount());
+        assertEquals(List.of(), scheduler.pollExpired(Instant.now().plus(Duration.ofDays(2))));
+    }
+
+    @Test
+    void requeuedBatchIsPolledAgainUnlessTrackedMeanwhile() {
+        scheduler.track(1L, T, OccurrenceStatus.SCHEDULED);
+        scheduler.track(2L, T, OccurrenceStatus.SCHEDULED);
+        List<Deadline> failed = scheduler.pollExpired(T);
+
+        // Row 2 moved while its flip was failing: the new deadline wins over the requeued one
+        scheduler.track(2L, T.plusSeconds(60), OccurrenceStatus.SCHEDULED);
+        scheduler.requeue(failed);
+
+        assertEquals(2, scheduler.pendingCount());
+        assertEquals(List.of(1L), ids(scheduler.pollExpired(T)));
+        assertEquals(List.of(2L), ids(scheduler.pollExpired(T.plusSeconds(60))));
+    }
+
+    private static List<Long> ids(List<Deadline> deadlines) {
+        return deadlines.stream().map(Deadline::occurrenceId).toList();
+    }
+}
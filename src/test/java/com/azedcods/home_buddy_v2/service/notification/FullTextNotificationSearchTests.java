@@ -0,0 +1,34 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FullTextNotificationSearchTests {
+
+    @Test
+    void everyWordBecomesAPrefixTerm() {
+        assertEquals("med:* & rem:*", FullTextNotificationSearch.toPrefixQuery("Med, rem!"));
+        assertEquals("été:* & 2:*", FullTextNotificationSearch.toPrefixQuery("  Été  #2 "));
+    }
+
+    @Test
+    void tsquerySyntaxCannotLeakThrough() {
+        assertEquals("a:* & b:* & c:*", FullTextNotificationSearch.toPrefixQuery("a & b | !c:*"));
+        assertEquals("drop:* & table:*", FullTextNotificationSearch.toPrefixQuery("'); drop table --"));
+    }
+
+    @Test
+    void repeatedWordsCountOnceAndTermsAreCapped() {
+        assertEquals("dose:*", FullTextNotificationSearch.toPrefixQuery("dose DOSE Dose"));
+        assertEquals("a:* & b:* & c:* & d:* & e:* & f:* & g:* & h:*",
+                FullTextNotificationSearch.toPrefixQuery("a b c d e f g h i j"));
+    }
+
+    @Test
+    void noWordsMeansNoFilter() {
+        assertNull(FullTextNotificationSearch.toPrefixQuery(null));
+        assertNull(FullTextNotificationSearch.toPrefixQuery("   "));
+        assertNull(FullTextNotificationSearch.toPrefixQuery("&|!:*()"));
+    }
+}
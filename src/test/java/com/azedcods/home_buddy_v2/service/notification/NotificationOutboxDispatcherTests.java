@@ -0,0 +1,46 @@
+package com.azedcods.home_buddy_v2.service.notification;
+
+import com.azedcods.home_buddy_v2.service.notification.NotificationOutboxDispatcher.Pending;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationOutboxDispatcherTests {
+
+    @Test
+    void coalescedEmitsBecomeOneDigestPerUserAndRule() {
+        List<Pending> out = NotificationOutboxDispatcher.coalesce(List.of(
+                pending(1, 10L, "ROBOT_STUCK", true, "first"),
+                pending(2, 10L, "DOSE_DUE", false, "plain"),
+                pending(3, 10L, "ROBOT_STUCK", true, "second"),
+                pending(4, 11L, "ROBOT_STUCK", true, "other user"),
+                pending(5, 10L, "ROBOT_STUCK", true, "latest")
+        ));
+
+        // A digest takes the id and content of its latest emit, and keeps the output in id order
+        assertEquals(List.of(2L, 4L, 5L), out.stream().map(Pending::id).toList());
+
+        Pending digest = out.get(2);
+        assertEquals("latest", digest.message());
+        assertEquals(3, digest.occurrences());
+        assertEquals(1, out.get(1).occurrences());
+    }
+
+    @Test
+    void plainEmitsPassThroughInIdOrder() {
+        List<Pending> in = List.of(
+                pending(1, 10L, "DOSE_DUE", false, "a"),
+                pending(2, 10L, "DOSE_DUE", false, "b")
+        );
+
+        assertEquals(in, NotificationOutboxDispatcher.coalesce(in));
+    }
+
+    private static Pending pending(long id, Long userId, String rule, boolean coalesced, String message) {
+        return new Pending(id, userId, null, rule, null, "SYSTEM", "INFO", "title", message,
+                null, null, null, null, 0, coalesced, 1, Instant.EPOCH.plusSeconds(id));
+    }
+}
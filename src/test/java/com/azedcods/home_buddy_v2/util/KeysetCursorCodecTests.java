@@ -0,0 +1,51 @@
+package com.azedcods.home_buddy_v2.util;
+
+import com.azedcods.home_buddy_v2.service.dose.OccurrenceCursor;
+import com.azedcods.home_buddy_v2.service.notification.NotificationCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorCodecTests {
+
+    @Test
+    void cursorsRoundTrip() {
+        OccurrenceCursor occurrence = new OccurrenceCursor(LocalDateTime.of(2026, 3, 2, 9, 0), 42L);
+        NotificationCursor notification = new NotificationCursor(Instant.parse("2026-03-02T14:00:00.123456Z"), -7L);
+
+        assertEquals(occurrence, OccurrenceCursor.decode(occurrence.encode()));
+        assertEquals(notification, NotificationCursor.decode(notification.encode()));
+    }
+
+    @Test
+    void tokensAreUrlSafeWithoutPadding() {
+        String token = KeysetCursorCodec.encode(LocalDateTime.of(2026, 3, 2, 9, 0), 1L);
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void anythingElseIsAnInvalidCursor() {
+        assertInvalid("not base64!");
+        assertInvalid(encode("2026-03-02T09:00"));
+        assertInvalid(encode("2026-03-02T09:00|abc"));
+        assertInvalid(encode("yesterday|1"));
+        // An occurrence token is not a notification token
+        assertThrows(IllegalArgumentException.class, () -> NotificationCursor.decode(
+                new OccurrenceCursor(LocalDateTime.of(2026, 3, 2, 9, 0), 1L).encode()));
+    }
+
+    private static void assertInvalid(String token) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OccurrenceCursor.decode(token));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}